@@ -0,0 +1,209 @@
+package com.example.gateway.config;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches successful GET responses of a route in memory, keyed by route, caller authorities, path and
+ * query, and tags them with an ETag so {@code If-None-Match} is answered with 304 by the gateway.
+ * Writes through the same route evict what they may have changed once they succeed; changes made
+ * behind the gateway are picked up when entries expire.
+ */
+@Component
+public class CatalogCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<CatalogCacheGatewayFilterFactory.Config> {
+    private static final Set<String> UNCACHED_HEADERS = Set.of(
+            HttpHeaders.SET_COOKIE, HttpHeaders.DATE, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION);
+
+    private final Cache<String, Entry> entries;
+    // Bumped by every write, so a read that started before it cannot store what it fetched
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Duration defaultTtl;
+    private final int maxBodyBytes;
+
+    /** {@code ttl} can only shorten the gateway-wide {@code gateway.cache.ttl} for a route. */
+    public static class Config {
+        private Duration ttl;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    record Entry(String routeId, String path, int status, HttpHeaders headers, byte[] body, String etag, Instant expiresAt) {}
+
+    public CatalogCacheGatewayFilterFactory(
+            @Value("${gateway.cache.max-entries:10000}") long maxEntries,
+            @Value("${gateway.cache.ttl:30s}") Duration defaultTtl,
+            @Value("${gateway.cache.max-body-bytes:1048576}") int maxBodyBytes) {
+        super(Config.class);
+        this.entries = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(defaultTtl).build();
+        this.defaultTtl = defaultTtl;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Duration ttl = config.getTtl() != null ? config.getTtl() : defaultTtl;
+        // Runs inside the response write, so the body can be captured before Netty sends it
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "";
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange).then(Mono.fromRunnable(() -> evictAfterWrite(exchange, routeId)));
+            }
+            if (request.getHeaders().getAccept().contains(MediaType.APPLICATION_NDJSON)) {
+                return chain.filter(exchange);
+            }
+            return exchange.getPrincipal()
+                    .map(CatalogCacheGatewayFilterFactory::roles)
+                    .defaultIfEmpty("")
+                    .flatMap(roles -> {
+                        String key = routeId + '|' + roles + '|' + request.getURI().getRawPath() + '?' + sortedQuery(request);
+                        Entry cached = entries.getIfPresent(key);
+                        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+                            return respond(exchange, cached);
+                        }
+                        long generation = generation(routeId).get();
+                        return chain.filter(exchange.mutate()
+                                .response(new CapturingResponse(exchange, key, routeId, generation, ttl))
+                                .build());
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> respond(ServerWebExchange exchange, Entry entry) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().putAll(entry.headers());
+        if (notModified(exchange, entry.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setRawStatusCode(entry.status());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+    }
+
+    private static boolean notModified(ServerWebExchange exchange, String etag) {
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+        return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+    }
+
+    // A write to a hotel may cascade to its rooms, so it clears the whole route; room writes clear rooms
+    private void evictAfterWrite(ServerWebExchange exchange, String routeId) {
+        HttpStatus status = HttpStatus.resolve(exchange.getResponse().getStatusCode() != null
+                ? exchange.getResponse().getStatusCode().value() : 0);
+        if (status == null || !status.is2xxSuccessful()) return;
+        String path = exchange.getRequest().getURI().getRawPath();
+        String scope = path.startsWith("/api/rooms") ? "/api/rooms" : "";
+        generation(routeId).incrementAndGet();
+        entries.asMap().values().removeIf(e -> e.routeId().equals(routeId) && e.path().startsWith(scope));
+    }
+
+    private AtomicLong generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong());
+    }
+
+    // The services map the same token to the same authorities, so these stand for the caller's role
+    private static String roles(Principal principal) {
+        if (!(principal instanceof Authentication authentication)) return "";
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private static String sortedQuery(ServerHttpRequest request) {
+        return request.getQueryParams().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + '=' + String.join(",", e.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+
+    private final class CapturingResponse extends ServerHttpResponseDecorator {
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final String routeId;
+        private final long generation;
+        private final Duration ttl;
+
+        CapturingResponse(ServerWebExchange exchange, String key, String routeId, long generation, Duration ttl) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.routeId = routeId;
+            this.generation = generation;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            MediaType contentType = getHeaders().getContentType();
+            if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()
+                    || contentType == null || contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                String etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                getHeaders().setETag(etag);
+                if (bytes.length <= maxBodyBytes && generation(routeId).get() == generation) {
+                    entries.put(key, new Entry(routeId, exchange.getRequest().getURI().getRawPath(), HttpStatus.OK.value(),
+                            cacheableHeaders(getHeaders()), bytes, etag, Instant.now().plus(ttl)));
+                }
+                if (notModified(exchange, etag)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                    return setComplete();
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        private HttpHeaders cacheableHeaders(HttpHeaders headers) {
+            HttpHeaders copy = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) copy.put(name, List.copyOf(values));
+            });
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.gateway.config;
+import com.example.loadbalancer.LatencyAwareLoadBalancerConfig;
+
+/** Load balancer for {@code lb://hotel-service}, registered through {@code @LoadBalancerClient} on {@link LoadBalancerConfig}. */
+public class HotelLoadBalancerConfig extends LatencyAwareLoadBalancerConfig {
+    public HotelLoadBalancerConfig() {
+        super("gateway.lb");
+    }
+}
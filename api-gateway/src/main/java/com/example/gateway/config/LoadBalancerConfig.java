@@ -0,0 +1,18 @@
+package com.example.gateway.config;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+@LoadBalancerClient(name = "hotel-service", configuration = HotelLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+    // For calls the gateway makes itself, such as aggregations; routed traffic goes through lb:// routes
+    @Bean
+    WebClient hotelWebClient(WebClient.Builder builder, ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                             @Value("${gateway.aggregation.hotel-base-url:http://hotel-service}") String baseUrl) {
+        return builder.baseUrl(baseUrl).filter(loadBalancer).build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.gateway.config;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory token buckets for the {@code RequestRateLimiter} filter, one per route and caller
+ * (the JWT subject, via the gateway's principal-name key resolver). Each bucket is a single
+ * {@link AtomicLong} holding its theoretical arrival time (GCRA), which behaves exactly like a
+ * token bucket refilled at {@code replenish-rate} up to {@code burst-capacity} and is updated with
+ * one CAS. Route limits come from {@code local-rate-limiter.*} filter args; limits are per instance.
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final Config defaultConfig;
+
+    public static class Config {
+        private int replenishRate = 50;
+        private int burstCapacity = 100;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+
+    public LocalRateLimiter(ConfigurationService configurationService,
+                            @Value("${gateway.rate-limit.replenish-rate:50}") int replenishRate,
+                            @Value("${gateway.rate-limit.burst-capacity:100}") int burstCapacity) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = new Config().setReplenishRate(replenishRate).setBurstCapacity(burstCapacity);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return Mono.just(tryAcquire(routeId, id, System.nanoTime()));
+    }
+
+    Response tryAcquire(String routeId, String id, long now) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        long interval = NANOS_PER_SECOND / Math.max(1, config.getReplenishRate());
+        long tolerance = interval * config.getBurstCapacity();
+        long cost = interval * config.getRequestedTokens();
+        // Long.MIN_VALUE is "never used": the bucket starts full whatever nanoTime's origin is
+        AtomicLong tat = buckets.computeIfAbsent(routeId + '|' + id, key -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + cost;
+            long debt = next - now;
+            if (debt > tolerance) {
+                return new Response(false, headers(config, 0, debt - tolerance));
+            }
+            if (tat.compareAndSet(current, next)) {
+                return new Response(true, headers(config, (tolerance - debt) / interval, 0));
+            }
+        }
+    }
+
+    private static Map<String, String> headers(Config config, long remaining, long waitNanos) {
+        Map<String, String> headers = new HashMap<>(4);
+        headers.put("X-RateLimit-Limit", String.valueOf(config.getBurstCapacity()));
+        headers.put("X-RateLimit-Remaining", String.valueOf(remaining));
+        if (waitNanos > 0) {
+            headers.put("Retry-After", String.valueOf((waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        }
+        return headers;
+    }
+
+    /**
+     * Drops buckets that have refilled completely, since they behave like new ones. A request racing
+     * the sweep may lose its bucket and start from full, which allows one extra burst at most.
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(tat -> tat.get() <= now);
+    }
+}
@@ -1,16 +1,29 @@
 package com.example.gateway.config;
+import java.time.Duration;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
 @Configuration
 @EnableWebFluxSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
+    @Value("${spring.security.oauth2.resourceserver.jwt.secret-key}")
+    private String jwtSecret;
+    @Value("${gateway.jwt-cache.max-size:10000}")
+    private long jwtCacheSize;
+    @Value("${gateway.jwt-cache.max-ttl:PT10M}")
+    private Duration jwtCacheMaxTtl;
+
     @Bean
     public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
         http.csrf(ServerHttpSecurity.CsrfSpec::disable)
@@ -19,4 +32,12 @@ public class SecurityConfig {
                 .oauth2ResourceServer(ServerHttpSecurity.OAuth2ResourceServerSpec::jwt);
         return http.build();
     }
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder() {
+        SecretKeySpec secretKey = new SecretKeySpec(jwtSecret.getBytes(), "HmacSHA256");
+        ReactiveJwtDecoder verifier = NimbusReactiveJwtDecoder.withSecretKey(secretKey).macAlgorithm(MacAlgorithm.HS256).build();
+        // Clients re-send the same bearer token on every call, so verify it once and reuse the result
+        return new CachingReactiveJwtDecoder(verifier, jwtCacheSize, jwtCacheMaxTtl);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.example.gateway.web;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Everything a hotel page needs in one call: the hotel, its available rooms and their occupancy
+ * stats, fetched from hotel-service in parallel and merged. Each leg has its own timeout. Without
+ * the hotel there is no page, so its failure fails the request; a failed rooms or stats leg leaves
+ * its part out and is listed under {@code missing}, with {@code partial} set.
+ */
+@RestController
+public class HotelPageController {
+    private static final Logger log = LoggerFactory.getLogger(HotelPageController.class);
+
+    private final WebClient hotelWebClient;
+    private final ObjectMapper objectMapper;
+    private final Duration hotelTimeout;
+    private final Duration roomsTimeout;
+    private final Duration statsTimeout;
+
+    public HotelPageController(WebClient hotelWebClient, ObjectMapper objectMapper,
+                               @Value("${gateway.aggregation.timeouts.hotel:1s}") Duration hotelTimeout,
+                               @Value("${gateway.aggregation.timeouts.rooms:1s}") Duration roomsTimeout,
+                               @Value("${gateway.aggregation.timeouts.stats:500ms}") Duration statsTimeout) {
+        this.hotelWebClient = hotelWebClient;
+        this.objectMapper = objectMapper;
+        this.hotelTimeout = hotelTimeout;
+        this.roomsTimeout = roomsTimeout;
+        this.statsTimeout = statsTimeout;
+    }
+
+    @GetMapping("/api/hotel-pages/{id}")
+    public Mono<JsonNode> page(@PathVariable Long id, @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        Mono<JsonNode> hotel = leg("/api/hotels/{id}", authorization, hotelTimeout, id)
+                .onErrorMap(ex -> !(ex instanceof ResponseStatusException), HotelPageController::unavailable);
+        Mono<Optional<JsonNode>> rooms = optional("rooms", id,
+                leg("/api/rooms/recommend?hotelId={id}", authorization, roomsTimeout, id));
+        Mono<Optional<JsonNode>> stats = optional("stats", id,
+                leg("/api/rooms/stats?hotelId={id}", authorization, statsTimeout, id));
+        return Mono.zip(hotel, rooms, stats).map(legs -> merge(legs.getT1(), legs.getT2(), legs.getT3()));
+    }
+
+    private Mono<JsonNode> leg(String uri, String authorization, Duration timeout, Object... uriVariables) {
+        return hotelWebClient.get()
+                .uri(uri, uriVariables)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout)
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> ex.getStatusCode().is4xxClientError() ? new ResponseStatusException(ex.getStatusCode(), ex.getStatusText()) : ex);
+    }
+
+    private static Mono<Optional<JsonNode>> optional(String name, Long hotelId, Mono<JsonNode> leg) {
+        return leg.map(Optional::of)
+                .onErrorResume(ex -> {
+                    log.warn("Hotel page {}: {} leg failed, answering without it: {}", hotelId, name, ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private static ResponseStatusException unavailable(Throwable ex) {
+        HttpStatus status = ex instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY;
+        return new ResponseStatusException(status, "Hotel is unavailable", ex);
+    }
+
+    private JsonNode merge(JsonNode hotel, Optional<JsonNode> rooms, Optional<JsonNode> stats) {
+        List<String> missing = new ArrayList<>();
+        if (rooms.isEmpty()) missing.add("rooms");
+        if (stats.isEmpty()) missing.add("stats");
+        Map<Long, JsonNode> statsByRoom = new HashMap<>();
+        stats.ifPresent(all -> all.forEach(s -> statsByRoom.put(s.path("roomId").asLong(), s)));
+
+        ObjectNode page = objectMapper.createObjectNode();
+        page.set("hotel", hotel);
+        ArrayNode roomNodes = page.putArray("rooms");
+        rooms.ifPresent(all -> all.forEach(room -> {
+            ObjectNode merged = room.deepCopy();
+            JsonNode roomStats = statsByRoom.get(room.path("id").asLong());
+            if (roomStats != null) merged.set("stats", roomStats);
+            roomNodes.add(merged);
+        }));
+        page.put("partial", !missing.isEmpty());
+        page.set("missing", objectMapper.valueToTree(missing));
+        return page;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.gateway;
+
+import com.example.gateway.web.HotelPageController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the aggregation against an in-process stub of hotel-service, answering each leg by path.
+ */
+class HotelPageControllerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testMergesRoomsWithTheirStats() {
+        // Given
+        HotelPageController controller = controller(Map.of(
+                "/api/hotels/1", Mono.just(json(HttpStatus.OK, "{\"id\":1,\"name\":\"Grand\"}")),
+                "/api/rooms/recommend", Mono.just(json(HttpStatus.OK, "[{\"id\":10},{\"id\":11}]")),
+                "/api/rooms/stats", Mono.just(json(HttpStatus.OK, "[{\"roomId\":11,\"timesBooked\":3,\"currentLocks\":1}]"))));
+
+        // When
+        JsonNode page = controller.page(1L, "Bearer token").block();
+
+        // Then
+        assertEquals("Grand", page.path("hotel").path("name").asText());
+        assertEquals(2, page.path("rooms").size());
+        assertTrue(page.path("rooms").get(0).path("stats").isMissingNode());
+        assertEquals(3, page.path("rooms").get(1).path("stats").path("timesBooked").asInt());
+        assertFalse(page.path("partial").asBoolean());
+    }
+
+    @Test
+    void testSlowStatsLegGivesPartialPage() {
+        // Given stats answer after their 100 ms budget
+        HotelPageController controller = controller(Map.of(
+                "/api/hotels/1", Mono.just(json(HttpStatus.OK, "{\"id\":1}")),
+                "/api/rooms/recommend", Mono.just(json(HttpStatus.OK, "[{\"id\":10}]")),
+                "/api/rooms/stats", Mono.delay(Duration.ofSeconds(2)).map(t -> json(HttpStatus.OK, "[]"))));
+
+        // When
+        long started = System.nanoTime();
+        JsonNode page = controller.page(1L, "Bearer token").block();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        // Then the page comes back on time, without stats
+        assertTrue(elapsedMs < 1_000, elapsedMs + " ms");
+        assertEquals(1, page.path("rooms").size());
+        assertTrue(page.path("partial").asBoolean());
+        assertEquals("stats", page.path("missing").get(0).asText());
+    }
+
+    @Test
+    void testMissingHotelFailsThePage() {
+        // Given
+        HotelPageController controller = controller(Map.of(
+                "/api/hotels/1", Mono.just(json(HttpStatus.NOT_FOUND, "{}")),
+                "/api/rooms/recommend", Mono.just(json(HttpStatus.OK, "[]")),
+                "/api/rooms/stats", Mono.just(json(HttpStatus.OK, "[]"))));
+
+        // When/Then
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.page(1L, "Bearer token").block());
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+
+    private HotelPageController controller(Map<String, Mono<ClientResponse>> legs) {
+        WebClient stub = WebClient.builder()
+                .baseUrl("http://hotel-service")
+                .exchangeFunction(request -> legs.get(request.url().getPath()))
+                .build();
+        return new HotelPageController(stub, objectMapper,
+                Duration.ofMillis(500), Duration.ofMillis(500), Duration.ofMillis(100));
+    }
+
+    private static ClientResponse json(HttpStatus status, String body) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
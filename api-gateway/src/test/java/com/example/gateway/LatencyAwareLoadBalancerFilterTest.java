@@ -0,0 +1,124 @@
+package com.example.gateway;
+
+import com.example.loadbalancer.LatencyAwareLoadBalancer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClientsProperties;
+import org.springframework.cloud.gateway.config.GatewayLoadBalancerProperties;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * Routes {@code lb://} requests through the gateway's {@link ReactiveLoadBalancerClientFilter} with
+ * the balancer registered as the service's load balancer and lifecycle, as
+ * LatencyAwareLoadBalancerConfig does, so the start and completion hooks are the ones the gateway calls.
+ */
+class LatencyAwareLoadBalancerFilterTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance hotel1 = instance("hotel-1");
+    private final ServiceInstance hotel2 = instance("hotel-2");
+    private final AtomicLong clock = new AtomicLong();
+    private final LatencyAwareLoadBalancer balancer = new LatencyAwareLoadBalancer(
+            suppliers(hotel1, hotel2), 10_000 * MS, 2_000 * MS, clock::get);
+    private final ReactiveLoadBalancerClientFilter filter =
+            new ReactiveLoadBalancerClientFilter(factory(balancer), new GatewayLoadBalancerProperties());
+
+    @Test
+    void testSlowRouteIsAvoidedWhileRunningAndAfterwards() {
+        // Given both instances have answered in 5 ms
+        balancer.record(hotel1, 5 * MS, false);
+        balancer.record(hotel2, 5 * MS, false);
+
+        // When one request is routed and takes 500 ms
+        AtomicReference<Map<String, Integer>> picksDuringCall = new AtomicReference<>();
+        String routed = route(500 * MS, () -> picksDuringCall.set(picks(100)));
+
+        // Then the other instance wins while it is in flight, and keeps winning once its latency is known
+        String other = routed.equals("hotel-1") ? "hotel-2" : "hotel-1";
+        assertEquals(Map.of(other, 100), picksDuringCall.get());
+        assertEquals(Map.of(other, 100), picks(100));
+    }
+
+    @Test
+    void testFinishedRouteIsReleased() {
+        // Given both instances have answered in 5 ms
+        balancer.record(hotel1, 5 * MS, false);
+        balancer.record(hotel2, 5 * MS, false);
+
+        // When one request is routed and answers as fast as before
+        route(0, () -> {});
+
+        // Then the gateway reported its completion, so both instances are picked again
+        Map<String, Integer> picks = picks(200);
+        assertTrue(picks.getOrDefault("hotel-1", 0) > 50 && picks.getOrDefault("hotel-2", 0) > 50, picks.toString());
+    }
+
+    // Returns the instance the filter routed to; the chain stands in for the proxied call
+    private String route(long latencyNanos, Runnable duringCall) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/hotels/1"));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("lb://hotel-service/api/hotels/1"));
+        AtomicReference<String> routed = new AtomicReference<>();
+        filter.filter(exchange, routedExchange -> Mono.fromRunnable(() -> {
+            URI url = routedExchange.getRequiredAttribute(GATEWAY_REQUEST_URL_ATTR);
+            routed.set(url.getHost());
+            duringCall.run();
+            clock.addAndGet(latencyNanos);
+        })).block();
+        assertNotNull(routed.get());
+        return routed.get();
+    }
+
+    private Map<String, Integer> picks(int n) {
+        Map<String, Integer> picks = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            picks.merge(balancer.choose(new DefaultRequest<>()).block().getServer().getInstanceId(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static LoadBalancerClientFactory factory(LatencyAwareLoadBalancer balancer) {
+        return new LoadBalancerClientFactory(new LoadBalancerClientsProperties()) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getInstance(String name, Class<T> type) {
+                return (T) balancer;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Map<String, T> getInstances(String name, Class<T> type) {
+                return (Map<String, T>) Map.of("hotel-service", balancer);
+            }
+        };
+    }
+
+    private static ObjectProvider<ServiceInstanceListSupplier> suppliers(ServiceInstance... instances) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("supplier", ServiceInstanceListSuppliers.from("hotel-service", instances));
+        return beans.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "hotel-service", id, 8081, false);
+    }
+}
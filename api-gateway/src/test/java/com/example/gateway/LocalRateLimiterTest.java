@@ -0,0 +1,46 @@
+package com.example.gateway;
+
+import com.example.gateway.config.LocalRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    @Test
+    void testBurstThenRejectWithHeaders() {
+        // Given a bucket of 3 refilled at 1 per second
+        LocalRateLimiter limiter = new LocalRateLimiter(null, 1, 3);
+
+        // When one caller sends 4 requests at once
+        List<RateLimiter.Response> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) responses.add(limiter.isAllowed("booking", "user-1").block());
+
+        // Then the burst passes, the fourth is told when to retry, and other callers are unaffected
+        assertTrue(responses.get(2).isAllowed());
+        assertEquals("0", responses.get(2).getHeaders().get("X-RateLimit-Remaining"));
+        assertFalse(responses.get(3).isAllowed());
+        assertEquals("1", responses.get(3).getHeaders().get("Retry-After"));
+        assertTrue(limiter.isAllowed("booking", "user-2").block().isAllowed());
+        assertTrue(limiter.isAllowed("hotel", "user-1").block().isAllowed());
+    }
+
+    @Test
+    void testRejectedCallerIsAdmittedOnceATokenRefills() throws InterruptedException {
+        // Given a bucket of 1 refilled every 50 ms, already spent
+        LocalRateLimiter limiter = new LocalRateLimiter(null, 20, 1);
+        assertTrue(limiter.isAllowed("booking", "user-1").block().isAllowed());
+        assertFalse(limiter.isAllowed("booking", "user-1").block().isAllowed());
+
+        // When one refill interval has passed
+        Thread.sleep(60);
+
+        // Then exactly one more request fits
+        assertTrue(limiter.isAllowed("booking", "user-1").block().isAllowed());
+        assertFalse(limiter.isAllowed("booking", "user-1").block().isAllowed());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.gateway;
+
+import com.example.gateway.config.LocalRateLimiter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the limiter at 50k decisions per second from 8 threads across 10k subjects for 2 seconds
+ * and reports the achieved rate and per-decision latency. Wall-clock figures, so it only runs
+ * with -Pbenchmark and asserts nothing about them.
+ */
+@Tag("benchmark")
+class RateLimiterBenchmarkTest {
+    private static final int THREADS = 8;
+    private static final int TARGET_PER_SECOND = 50_000;
+    private static final int SECONDS = 2;
+    private static final int SUBJECTS = 10_000;
+
+    @Test
+    void testDecisionLatencyAt50kRequestsPerSecond(TestReporter reporter) throws Exception {
+        // Given
+        LocalRateLimiter limiter = new LocalRateLimiter(null, 50, 100);
+        int perThread = TARGET_PER_SECOND * SECONDS / THREADS;
+        long gapNanos = TimeUnit.SECONDS.toNanos(1) * THREADS / TARGET_PER_SECOND;
+
+        // When each thread issues its share on a fixed schedule
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> results = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                long[] latencies = new long[perThread];
+                long due = System.nanoTime();
+                for (int i = 0; i < perThread; i++) {
+                    while (System.nanoTime() < due) LockSupport.parkNanos(gapNanos / 4);
+                    long before = System.nanoTime();
+                    RateLimiter.Response response = limiter.isAllowed("booking", "user-" + ((i * THREADS + thread) % SUBJECTS)).block();
+                    latencies[i] = System.nanoTime() - before;
+                    assertNotNull(response);
+                    due += gapNanos;
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[perThread * THREADS];
+        int offset = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        // Then
+        Arrays.sort(all);
+        long p50 = all[all.length / 2] / 1_000;
+        long p99 = all[(int) (all.length * 0.99)] / 1_000;
+        reporter.publishEntry("decisions", String.format("%d decisions in %.2f s (%.0f/s), %d subjects: p50 %d us, p99 %d us",
+                all.length, elapsed, all.length / elapsed, SUBJECTS, p50, p99));
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.booking.config;
+import com.example.loadbalancer.LatencyAwareLoadBalancerConfig;
+
+/** Load balancer for hotel-service, registered through {@code @LoadBalancerClient} on {@link WebClientConfig}. */
+public class HotelLoadBalancerConfig extends LatencyAwareLoadBalancerConfig {
+    public HotelLoadBalancerConfig() {
+        super("booking.saga.hotel.lb");
+    }
+}
@@ -1,17 +1,18 @@
 package com.example.booking.config;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
-import org.springframework.cloud.client.discovery.simple.reactive.SimpleReactiveDiscoveryClient;
-import org.springframework.cloud.loadbalancer.core.DiscoveryClientServiceInstanceListSupplier;
-import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
+@LoadBalancerClient(name = "hotel-service", configuration = HotelLoadBalancerConfig.class)
 public class WebClientConfig {
     @Bean
-    WebClient webClient(WebClient.Builder builder) {
-        return builder.build(); // lb:// via Spring Cloud LoadBalancer auto-config
+    WebClient webClient(WebClient.Builder builder, ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+                        @Value("${booking.saga.hotel.base-url:http://hotel-service}") String baseUrl) {
+        // The host of baseUrl is the service id; the filter resolves it to an instance per request
+        return builder.baseUrl(baseUrl).filter(loadBalancer).build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package com.example.booking.dto;
+
+import com.example.booking.repo.BookingRepository.BookingSummary;
+import java.util.List;
+
+/** One keyset page of booking history; {@code nextCursor} is null on the last page. */
+public record BookingHistoryPage(List<BookingSummary> items, String nextCursor) {}
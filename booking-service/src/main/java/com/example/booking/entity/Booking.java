@@ -10,10 +10,11 @@ public class Booking {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private Long userId;
-    private Long roomId;
+    private Long roomId; // null until hotel-service picks the room for an auto-selected booking
+    private Long hotelId; // auto-selection scope; null means any hotel
     private LocalDate startDate;
     private LocalDate endDate;
-    private String status; // PENDING/CONFIRMED/CANCELLED
+    private String status; // PENDING/CONFIRMING/CONFIRMED/CANCELLED
     @Column(unique = true)
     private String requestId;
     @Column(unique = true)
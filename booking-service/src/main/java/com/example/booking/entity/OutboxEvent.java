@@ -0,0 +1,16 @@
+package com.example.booking.entity;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity @Table(name="booking_outbox")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class OutboxEvent {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long bookingId;
+    private String type; // CONFIRM/RELEASE
+    private int attempts;
+    private Instant availableAt; // not picked up before this; pushed forward while a worker holds it
+    private Instant createdAt;
+}
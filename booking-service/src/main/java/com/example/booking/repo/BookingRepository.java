@@ -2,16 +2,55 @@ package com.example.booking.repo;
 import com.example.booking.entity.Booking;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("select b from Booking b where b.roomId = :roomId and b.startDate <= :endDate and b.endDate >= :startDate and b.status <> 'CANCELLED'")
     List<Booking> findOverlaps(@Param("roomId") Long roomId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     Optional<Booking> findByRequestId(String requestId);
+    List<Booking> findByStatusAndUpdatedAtAfter(String status, Instant after);
+    // Keyset batch of bookings stuck mid-saga; bookings the outbox will still retry are not stuck, those whose events are dead are
+    @Query("select b from Booking b where b.status in ('PENDING', 'CONFIRMING') and b.updatedAt < :cutoff and b.id > :after " +
+            "and not exists (select e from OutboxEvent e where e.bookingId = b.id and e.attempts < :maxAttempts) order by b.id")
+    List<Booking> findStuckAfter(@Param("after") long after, @Param("cutoff") Instant cutoff,
+                                 @Param("maxAttempts") int maxAttempts, Pageable pageable);
+    @Query("select b.requestId from Booking b where b.requestId is not null")
+    Stream<String> streamRequestIds();
     Page<Booking> findByUserId(Long userId, Pageable pageable);
-}
\ No newline at end of file
+    // Offset paging without the count query
+    Slice<BookingSummary> findSliceByUserId(Long userId, Pageable pageable);
+    // Keyset history on idx_bookings_user_created: newest first, then the page after (createdAt, id)
+    @Query("select b.id as id, b.roomId as roomId, b.hotelId as hotelId, b.startDate as startDate, b.endDate as endDate, " +
+            "b.status as status, b.createdAt as createdAt from Booking b where b.userId = :userId order by b.createdAt desc, b.id desc")
+    List<BookingSummary> findHistoryFirst(@Param("userId") Long userId, Pageable pageable);
+    @Query("select b.id as id, b.roomId as roomId, b.hotelId as hotelId, b.startDate as startDate, b.endDate as endDate, " +
+            "b.status as status, b.createdAt as createdAt from Booking b where b.userId = :userId " +
+            "and (b.createdAt < :createdAt or (b.createdAt = :createdAt and b.id < :id)) order by b.createdAt desc, b.id desc")
+    List<BookingSummary> findHistoryAfter(@Param("userId") Long userId, @Param("createdAt") Instant createdAt,
+                                          @Param("id") Long id, Pageable pageable);
+    @Modifying
+    @Query("update Booking b set b.roomId = :roomId where b.id = :id")
+    int assignRoom(@Param("id") Long id, @Param("roomId") Long roomId);
+    @Modifying
+    @Query("update Booking b set b.status = :to, b.updatedAt = :at where b.id = :id and b.status = :from")
+    int transition(@Param("id") Long id, @Param("from") String from, @Param("to") String to, @Param("at") Instant at);
+
+    interface BookingSummary {
+        Long getId();
+        Long getRoomId();
+        Long getHotelId();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        String getStatus();
+        Instant getCreatedAt();
+    }
+}
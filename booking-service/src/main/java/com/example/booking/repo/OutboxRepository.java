@@ -0,0 +1,32 @@
+package com.example.booking.repo;
+import com.example.booking.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+    @Query("select e from OutboxEvent e where e.type = :type and e.availableAt <= :now and e.attempts < :maxAttempts order by e.id")
+    List<OutboxEvent> findDue(@Param("type") String type, @Param("now") Instant now, @Param("maxAttempts") int maxAttempts, Pageable pageable);
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    // Takes the event only if no other worker leased it since it was read
+    @Modifying
+    @Query("update OutboxEvent e set e.availableAt = :leaseUntil, e.attempts = e.attempts + 1 where e.id = :id and e.availableAt = :seen")
+    int claim(@Param("id") Long id, @Param("seen") Instant seen, @Param("leaseUntil") Instant leaseUntil);
+    @Modifying
+    @Query("update OutboxEvent e set e.availableAt = :retryAt where e.id in :ids")
+    int reschedule(@Param("ids") Collection<Long> ids, @Param("retryAt") Instant retryAt);
+    // Events that used up their attempts; the worker never claims them again
+    @Query("select e from OutboxEvent e where e.type = :type and e.attempts >= :maxAttempts order by e.id")
+    List<OutboxEvent> findDead(@Param("type") String type, @Param("maxAttempts") int maxAttempts, Pageable pageable);
+    @Modifying
+    @Query("delete from OutboxEvent e where e.bookingId in :bookingIds and e.attempts >= :maxAttempts")
+    int deleteDeadByBookingIdIn(@Param("bookingIds") Collection<Long> bookingIds, @Param("maxAttempts") int maxAttempts);
+    long countByAttemptsGreaterThanEqual(int attempts);
+}
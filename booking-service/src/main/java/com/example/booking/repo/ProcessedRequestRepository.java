@@ -1,5 +1,23 @@
 package com.example.booking.repo;
 import com.example.booking.entity.ProcessedRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 
-public interface ProcessedRequestRepository extends JpaRepository<ProcessedRequest, String> {}
\ No newline at end of file
+public interface ProcessedRequestRepository extends JpaRepository<ProcessedRequest, String> {
+    @Modifying
+    @Query("update ProcessedRequest p set p.bookingId = :bookingId, p.status = :status, p.updatedAt = :at where p.requestId = :requestId")
+    int updateStatus(@Param("requestId") String requestId, @Param("bookingId") Long bookingId,
+                     @Param("status") String status, @Param("at") Instant at);
+    // Returns 0 instead of failing when the row exists, also when a concurrent insert just created it
+    @Modifying
+    @Query(value = "INSERT INTO processed_requests (request_id, booking_id, status, updated_at) " +
+            "VALUES (:requestId, :bookingId, :status, :at) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("requestId") String requestId, @Param("bookingId") Long bookingId,
+                       @Param("status") String status, @Param("at") Instant at);
+    @Modifying
+    @Query("delete from ProcessedRequest p where p.updatedAt < :cutoff and p.status in ('CONFIRMED', 'CANCELLED')")
+    int deleteFinishedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,109 @@
+package com.example.booking.service;
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.repo.BookingRepository;
+import com.example.booking.repo.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Settles bookings left PENDING or CONFIRMING by a crashed saga. Runs walk stuck bookings in id
+ * order, ask hotel-service about a whole batch at once, and confirm the ones holding a lock and
+ * cancel the rest. Bookings whose outbox events are dead count as stuck too, and the dead events
+ * go once the booking is settled; dead RELEASE events are sent here instead of by the worker. Each
+ * run is capped in batches and paced, and it is skipped while the hotel circuit breaker is not
+ * closed, so reconciliation never competes with live bookings.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingReconciler {
+    private final BookingRepository bookingRepo;
+    private final OutboxRepository outboxRepo;
+    private final HotelClient hotelClient;
+    private final HotelCircuitBreaker breaker;
+    private final SagaOrchestrator saga;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${booking.reconciler.enabled:true}") boolean enabled;
+    @Value("${booking.reconciler.stuck-after-ms:300000}") long stuckAfterMs;
+    @Value("${booking.reconciler.batch-size:50}") int batchSize;
+    @Value("${booking.reconciler.max-batches-per-run:10}") int maxBatchesPerRun;
+    @Value("${booking.reconciler.pause-ms:100}") long pauseMs;
+    @Value("${booking.outbox.max-attempts:10}") int maxAttempts;
+
+    @Scheduled(initialDelayString = "${booking.reconciler.interval-ms:60000}",
+            fixedDelayString = "${booking.reconciler.interval-ms:60000}")
+    public void scheduledRun() {
+        if (!enabled) return;
+        try {
+            reconcile();
+        } catch (Exception ex) {
+            log.warn("Booking reconciliation failed: {}", ex.getMessage());
+        }
+    }
+
+    /** One bounded pass; returns how many bookings were settled. */
+    public int reconcile() {
+        Instant cutoff = Instant.now().minus(Duration.ofMillis(stuckAfterMs));
+        long after = 0;
+        int settled = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            if (breaker.state() != HotelCircuitBreaker.State.CLOSED) break;
+            List<Booking> batch = bookingRepo.findStuckAfter(after, cutoff, maxAttempts, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) break;
+            settled += settle(batch);
+            after = batch.get(batch.size() - 1).getId();
+            if (batch.size() < batchSize) break;
+            pause();
+        }
+        if (breaker.state() == HotelCircuitBreaker.State.CLOSED) releaseDeadEvents();
+        return settled;
+    }
+
+    // One batch per run, sent as one bulk call like the worker's; a failure leaves them for the next run
+    private void releaseDeadEvents() {
+        List<OutboxEvent> dead = outboxRepo.findDead("RELEASE", maxAttempts, PageRequest.of(0, batchSize));
+        if (dead.isEmpty()) return;
+        saga.releaseLocks(dead.stream().map(OutboxEvent::getBookingId).toList());
+        List<Long> ids = dead.stream().map(OutboxEvent::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> outboxRepo.deleteByIdIn(ids));
+        meterRegistry.counter("booking.reconciler.dead_releases").increment(dead.size());
+    }
+
+    private int settle(List<Booking> batch) {
+        Map<String, Long> lockedRooms = hotelClient.lookupLocks(batch.stream().map(Booking::getBookingUid).toList()).stream()
+                .collect(Collectors.toMap(HotelClient.LockInfo::bookingUid, HotelClient.LockInfo::roomId, (a, b) -> a));
+        int settled = 0;
+        for (Booking booking : batch) {
+            Long roomId = lockedRooms.get(booking.getBookingUid());
+            if (saga.reconcile(booking, roomId)) {
+                settled++;
+                meterRegistry.counter("booking.reconciler.settled", "outcome", roomId != null ? "confirmed" : "cancelled").increment();
+            }
+        }
+        // A dead CONFIRM event would otherwise outlive its booking; a booking that moved on meanwhile does not need it either
+        List<Long> ids = batch.stream().map(Booking::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> outboxRepo.deleteDeadByBookingIdIn(ids, maxAttempts));
+        return settled;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
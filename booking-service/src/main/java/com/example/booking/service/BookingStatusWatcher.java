@@ -0,0 +1,40 @@
+package com.example.booking.service;
+import com.example.booking.entity.Booking;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Wakes long-polling readers when a booking reaches CONFIRMED or CANCELLED on this instance. */
+@Component
+public class BookingStatusWatcher {
+    private final Map<Long, Set<CompletableFuture<Void>>> waiting = new ConcurrentHashMap<>();
+
+    public static boolean isFinal(Booking booking) {
+        return "CONFIRMED".equals(booking.getStatus()) || "CANCELLED".equals(booking.getStatus());
+    }
+
+    // Register before reading the current status, so a completion in between is not missed
+    public CompletableFuture<Void> watch(Long bookingId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        waiting.compute(bookingId, (id, futures) -> {
+            Set<CompletableFuture<Void>> set = futures != null ? futures : ConcurrentHashMap.newKeySet();
+            set.add(done);
+            return set;
+        });
+        return done;
+    }
+
+    public void finished(Long bookingId) {
+        Set<CompletableFuture<Void>> futures = waiting.remove(bookingId);
+        if (futures != null) futures.forEach(done -> done.complete(null));
+    }
+
+    public void forget(Long bookingId, CompletableFuture<Void> done) {
+        waiting.computeIfPresent(bookingId, (id, futures) -> {
+            futures.remove(done);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.booking.service;
+import com.example.booking.entity.Booking;
+import com.example.booking.repo.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Per-room calendar of this service's recently confirmed stays, used to turn away bookings that
+ * obviously clash before the saga calls hotel-service. A stay is only kept while hotel-service
+ * certainly still holds its lock ({@code booking.precheck.hold-ms}, kept under the hotel lock TTL),
+ * and every local hit is confirmed against {@code bookings}, so a rejection here is one
+ * hotel-service would have made too. Misses say nothing; hotel-service decides those.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmedStays {
+    private final BookingRepository bookingRepo;
+    private final MeterRegistry meterRegistry;
+    @Value("${booking.precheck.enabled:true}") boolean enabled;
+    @Value("${booking.precheck.hold-ms:3300000}") long holdMs;
+
+    private final Map<Long, RoomStays> rooms = new ConcurrentHashMap<>();
+    private Counter passed;
+    private Counter rejected;
+    private Timer hotelCalls;
+
+    record Stay(Long bookingId, LocalDate start, LocalDate end, Instant heldUntil) {
+        // Inclusive on both ends, as hotel-service compares lock ranges
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return !start.isAfter(to) && !end.isBefore(from);
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        passed = meterRegistry.counter("booking.precheck", "outcome", "passed");
+        rejected = meterRegistry.counter("booking.precheck", "outcome", "rejected");
+        hotelCalls = meterRegistry.timer("booking.saga.hotel_call");
+        // Every early rejection skips one hotel round trip (plus its compensation), valued at the mean call
+        meterRegistry.gauge("booking.precheck.saved_seconds", this,
+                s -> s.rejected.count() * s.hotelCalls.mean(TimeUnit.SECONDS));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!enabled) return;
+        List<Booking> recent = bookingRepo.findByStatusAndUpdatedAtAfter("CONFIRMED", Instant.now().minusMillis(holdMs));
+        recent.forEach(b -> add(b.getId(), b.getRoomId(), b.getStartDate(), b.getEndDate(), b.getUpdatedAt()));
+        log.info("Overlap pre-check seeded with {} confirmed stays", recent.size());
+    }
+
+    /**
+     * True when a confirmed booking other than {@code booking} still holds an overlapping stay in
+     * its room. Stays the database no longer backs are dropped on the way.
+     */
+    public boolean conflicts(Booking booking) {
+        if (!enabled) return false;
+        RoomStays stays = rooms.get(booking.getRoomId());
+        List<Long> candidates = stays == null ? List.of()
+                : stays.overlapping(booking.getId(), booking.getStartDate(), booking.getEndDate(), Instant.now());
+        if (!candidates.isEmpty()) {
+            Instant heldSince = Instant.now().minusMillis(holdMs);
+            boolean confirmed = bookingRepo.findOverlaps(booking.getRoomId(), booking.getStartDate(), booking.getEndDate()).stream()
+                    .anyMatch(b -> candidates.contains(b.getId()) && "CONFIRMED".equals(b.getStatus())
+                            && b.getUpdatedAt().isAfter(heldSince));
+            if (confirmed) {
+                rejected.increment();
+                return true;
+            }
+            candidates.forEach(stays::remove);
+        }
+        passed.increment();
+        return false;
+    }
+
+    public <T> T timeHotelCall(Supplier<T> call) {
+        return hotelCalls.record(call);
+    }
+
+    public void add(Long bookingId, Long roomId, LocalDate start, LocalDate end, Instant confirmedAt) {
+        if (!enabled || roomId == null) return;
+        Stay stay = new Stay(bookingId, start, end, confirmedAt.plusMillis(holdMs));
+        rooms.compute(roomId, (id, stays) -> {
+            RoomStays calendar = stays != null ? stays : new RoomStays();
+            calendar.add(stay);
+            return calendar;
+        });
+    }
+
+    public void remove(Booking booking) {
+        RoomStays stays = booking.getRoomId() == null ? null : rooms.get(booking.getRoomId());
+        if (stays != null) stays.remove(booking.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${booking.precheck.prune-interval-ms:60000}")
+    public void prune() {
+        Instant now = Instant.now();
+        // Both sides go through compute, so an add never lands in a calendar that prune just dropped
+        rooms.keySet().forEach(roomId -> rooms.computeIfPresent(roomId, (id, stays) -> {
+            stays.prune(now);
+            return stays.isEmpty() ? null : stays;
+        }));
+    }
+
+    // A room rarely has more than a handful of stays inside the hold window, so a list is enough
+    static final class RoomStays {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Stay> stays = new ArrayList<>(4);
+
+        void add(Stay stay) {
+            lock.lock();
+            try {
+                stays.removeIf(s -> s.bookingId().equals(stay.bookingId()));
+                stays.add(stay);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Long> overlapping(Long exceptBookingId, LocalDate start, LocalDate end, Instant now) {
+            lock.lock();
+            try {
+                return stays.stream()
+                        .filter(s -> !s.bookingId().equals(exceptBookingId) && s.heldUntil().isAfter(now) && s.overlaps(start, end))
+                        .map(Stay::bookingId)
+                        .toList();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(Long bookingId) {
+            lock.lock();
+            try {
+                stays.removeIf(s -> s.bookingId().equals(bookingId));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void prune(Instant now) {
+            lock.lock();
+            try {
+                stays.removeIf(s -> !s.heldUntil().isAfter(now));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isEmpty() {
+            lock.lock();
+            try {
+                return stays.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.booking.service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Count-based circuit breaker for calls to hotel-service. It opens when the failure rate over the
+ * last {@code window-size} calls reaches the threshold, fails calls fast while open, and after
+ * {@code open-ms} lets a single probe through to decide whether to close again.
+ */
+@Component
+@RequiredArgsConstructor
+public class HotelCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final MeterRegistry meterRegistry;
+    @Value("${booking.saga.hotel.breaker.window-size:20}") int windowSize;
+    @Value("${booking.saga.hotel.breaker.minimum-calls:10}") int minimumCalls;
+    @Value("${booking.saga.hotel.breaker.failure-rate-threshold:50}") int failureRateThreshold;
+    @Value("${booking.saga.hotel.breaker.open-ms:5000}") long openMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean[] failedCalls;
+    private int next;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        failedCalls = new boolean[windowSize];
+        rejected = meterRegistry.counter("booking.hotel.breaker.rejected");
+        meterRegistry.gauge("booking.hotel.breaker.state", this, b -> b.state().ordinal());
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Runs {@code call} through the breaker; only errors matching {@code isFailure} count against it. */
+    public <T> Mono<T> protect(Mono<T> call, Predicate<Throwable> isFailure) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejected.increment();
+                return Mono.error(new HotelUnavailableException("hotel-service is unavailable, circuit breaker is open"));
+            }
+            return call
+                    .doOnSuccess(v -> record(false))
+                    .doOnError(ex -> record(isFailure.test(ex)))
+                    .doOnCancel(this::releaseProbe);
+        });
+    }
+
+    private boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMs) return false;
+                state = State.HALF_OPEN;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) return false;
+                probeInFlight = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failed) {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                if (failed) open();
+                else reset(State.CLOSED);
+                return;
+            }
+            if (state == State.OPEN) return;
+            if (recorded == windowSize && failedCalls[next]) failures--;
+            failedCalls[next] = failed;
+            if (failed) failures++;
+            next = (next + 1) % windowSize;
+            recorded = Math.min(recorded + 1, windowSize);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) open();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseProbe() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) probeInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void reset(State to) {
+        state = to;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        Arrays.fill(failedCalls, false);
+    }
+}
@@ -1,44 +1,142 @@
 package com.example.booking.service;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 @Component
 @RequiredArgsConstructor
 public class HotelClient {
     private final WebClient webClient;
+    private final HotelCircuitBreaker breaker;
+    private final MeterRegistry meterRegistry;
     @Value("${booking.saga.hotel.timeout-ms:2000}") long timeoutMs;
     @Value("${booking.saga.hotel.retries:3}") int retries;
     @Value("${booking.saga.hotel.backoff-ms:200}") long backoff;
+    @Value("${booking.saga.hotel.hedge-release:false}") boolean hedgeRelease;
+    @Value("${booking.saga.hotel.hedge-delay-ms:300}") long hedgeDelayMs;
 
     public void confirm(Long roomId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
-        webClient.post()
+        call("confirm", webClient.post()
                 .uri("/api/rooms/{id}/confirm-availability", roomId)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(Map.of("startDate", start, "endDate", end, "bookingUid", bookingUid, "requestId", requestId))
                 .retrieve()
-                .onStatus(s -> s.value()==409, resp -> resp.createException().map(ex -> new RuntimeException("conflict")))
-                .toBodilessEntity()
-                .timeout(Duration.ofMillis(timeoutMs))
-                .retryWhen(Retry.backoff(retries, Duration.ofMillis(backoff)))
+                .onStatus(s -> s.value()==409, resp -> resp.createException().map(ex -> new IllegalStateException("Room is not available for the selected dates")))
+                .toBodilessEntity())
+                .block();
+    }
+
+    // Server-side auto selection: hotel-service locks the first free room in fair order and returns it
+    public Long reserveAny(Long hotelId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("hotelId", hotelId);
+        body.put("startDate", start);
+        body.put("endDate", end);
+        body.put("bookingUid", bookingUid);
+        body.put("requestId", requestId);
+        ReservedRoom room = call("reserve-any", webClient.post()
+                .uri("/api/rooms/reserve-any")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(s -> s.value()==409, resp -> resp.createException().map(ex -> new IllegalStateException("No room is available for the selected dates")))
+                .bodyToMono(ReservedRoom.class))
+                .block();
+        return room.id();
+    }
+
+    // All-or-nothing lock of several rooms (group booking) in a single call and transaction
+    public void confirmBatch(List<ConfirmItem> items) {
+        call("confirm-batch", webClient.post()
+                .uri("/api/rooms/confirm-availability:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("items", items))
+                .retrieve()
+                .onStatus(s -> s.value()==409, resp -> resp.createException().map(ex -> new IllegalStateException("Rooms are not available for the selected dates")))
+                .toBodilessEntity())
+                .block();
+    }
+
+    // Locks hotel-service holds for any of these bookings; bookings without a lock are simply absent
+    public List<LockInfo> lookupLocks(Collection<String> bookingUids) {
+        return call("lookup", webClient.post()
+                .uri("/api/rooms/locks:lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("bookingUids", bookingUids))
+                .retrieve()
+                .bodyToFlux(LockInfo.class)
+                .collectList())
                 .block();
     }
 
     public void release(Long roomId, String requestId) {
-        webClient.post()
+        call("release", hedged("release", webClient.post()
                 .uri("/api/rooms/{id}/release", roomId)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(Map.of("requestId", requestId))
                 .retrieve()
-                .toBodilessEntity()
-                .timeout(Duration.ofMillis(timeoutMs))
-                .retryWhen(Retry.backoff(retries, Duration.ofMillis(backoff)))
+                .toBodilessEntity()))
                 .block();
     }
-}
\ No newline at end of file
+
+    // Releases the locks of several cancelled bookings in one call; unknown request ids are ignored
+    public void releaseBatch(List<String> requestIds) {
+        call("release-batch", hedged("release-batch", webClient.post()
+                .uri("/api/rooms/release:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("requestIds", requestIds))
+                .retrieve()
+                .toBodilessEntity()))
+                .block();
+    }
+
+    // Releases are idempotent, so a slow attempt may be raced by a second copy; the first answer wins.
+    // The hedge is counted when it is actually sent, not when its delay starts.
+    private Mono<ResponseEntity<Void>> hedged(String operation, Mono<ResponseEntity<Void>> attempt) {
+        if (!hedgeRelease) return attempt;
+        return Mono.firstWithValue(attempt, attempt
+                .doOnSubscribe(s -> meterRegistry.counter("booking.hotel.hedges", "operation", operation).increment())
+                .delaySubscription(Duration.ofMillis(hedgeDelayMs)));
+    }
+
+    // Per attempt: timeout, then the breaker; retries only for failures that may go away on their own
+    private <T> Mono<T> call(String operation, Mono<T> attempt) {
+        return breaker.protect(attempt.timeout(Duration.ofMillis(timeoutMs)), HotelClient::isTransient)
+                .retryWhen(Retry.backoff(retries, Duration.ofMillis(backoff))
+                        .filter(HotelClient::isTransient)
+                        .doBeforeRetry(signal -> meterRegistry.counter("booking.hotel.retries", "operation", operation).increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorMap(HotelClient::isTransient, ex -> new HotelUnavailableException(
+                        "hotel-service did not answer " + operation + ": " + ex.getMessage()));
+    }
+
+    // Timeouts, connection failures, 429 and 5xx; a 409 or any other 4xx is a definite answer
+    static boolean isTransient(Throwable ex) {
+        if (ex instanceof TimeoutException || ex instanceof WebClientRequestException) return true;
+        if (ex instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return false;
+    }
+
+    public record ReservedRoom(Long id, Long hotelId, String number) {}
+
+    public record LockInfo(Long roomId, String bookingUid, String requestId) {}
+
+    public record ConfirmItem(Long roomId, LocalDate startDate, LocalDate endDate, String bookingUid, String requestId) {}
+}
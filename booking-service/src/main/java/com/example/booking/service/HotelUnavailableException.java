@@ -0,0 +1,8 @@
+package com.example.booking.service;
+
+/** hotel-service could not be reached, or the circuit breaker is failing calls fast. */
+public class HotelUnavailableException extends RuntimeException {
+    public HotelUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.booking.service;
+import com.example.booking.repo.BookingRepository;
+import com.example.booking.repo.ProcessedRequestRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Idempotency bookkeeping for booking request ids. A Bloom filter over every known request id lets
+ * new ids skip the database lookup entirely, and a bounded LRU maps recently seen ids to their
+ * booking. Ids written by other instances after startup are missing from the local filter, so it
+ * answers "definitely not" for them; those are still caught by the unique constraint on
+ * {@code bookings.request_id}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyStore {
+    private final BookingRepository bookingRepo;
+    private final ProcessedRequestRepository processedRepo;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${booking.idempotency.cache-size:10000}") int cacheSize;
+    @Value("${booking.idempotency.expected-ids:1000000}") long expectedIds;
+    @Value("${booking.idempotency.false-positive-rate:0.01}") double falsePositiveRate;
+    @Value("${booking.idempotency.processed-ttl-hours:720}") long processedTtlHours;
+
+    private final ReentrantLock recentLock = new ReentrantLock();
+    private final Map<String, Long> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private volatile BloomFilter known;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        long count = bookingRepo.count();
+        BloomFilter filter = new BloomFilter(Math.max(expectedIds, count * 2), falsePositiveRate);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> ids = bookingRepo.streamRequestIds()) {
+                ids.forEach(filter::add);
+            }
+        });
+        known = filter;
+        log.info("Idempotency filter loaded with {} request ids", count);
+    }
+
+    /** False means the id has definitely never been used; true means look it up. */
+    public boolean mightExist(String requestId) {
+        BloomFilter filter = known;
+        return filter == null || filter.mightContain(requestId);
+    }
+
+    public Long cachedBookingId(String requestId) {
+        recentLock.lock();
+        try {
+            return recent.get(requestId);
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    public void remember(String requestId, Long bookingId) {
+        BloomFilter filter = known;
+        if (filter != null) filter.add(requestId);
+        recentLock.lock();
+        try {
+            recent.put(requestId, bookingId);
+        } finally {
+            recentLock.unlock();
+        }
+    }
+
+    /**
+     * One upsert per saga state; must run inside the transition's transaction. {@code PENDING} starts
+     * the row, so it is inserted first and an insert lost to a concurrent one falls back to the
+     * update; every later state is a plain update, inserting only when the row is missing. Either way
+     * the same id never raises a unique violation.
+     */
+    public void record(String requestId, Long bookingId, String status, Instant at) {
+        if ("PENDING".equals(status)) {
+            if (processedRepo.insertIfAbsent(requestId, bookingId, status, at) > 0) return;
+            processedRepo.updateStatus(requestId, bookingId, status, at);
+            return;
+        }
+        if (processedRepo.updateStatus(requestId, bookingId, status, at) > 0) return;
+        if (processedRepo.insertIfAbsent(requestId, bookingId, status, at) > 0) return;
+        processedRepo.updateStatus(requestId, bookingId, status, at);
+    }
+
+    // processed_requests is bookkeeping only; finished rows past the TTL are dropped
+    @Scheduled(fixedDelayString = "${booking.idempotency.compaction-interval-ms:3600000}")
+    public void compact() {
+        try {
+            Instant cutoff = Instant.now().minus(Duration.ofHours(processedTtlHours));
+            Integer deleted = transactionTemplate.execute(status -> processedRepo.deleteFinishedBefore(cutoff));
+            if (deleted != null && deleted > 0) log.info("Compacted {} processed requests older than {}", deleted, cutoff);
+        } catch (Exception ex) {
+            log.warn("Processed request compaction failed: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.booking.service;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.repo.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the booking outbox on a bounded worker pool. Each poll claims at most as many due events
+ * as the pool can take, leasing them by pushing {@code availableAt} forward; an event whose worker
+ * dies becomes due again when the lease runs out. A failed attempt is retried after an exponential
+ * backoff, and after {@code max-attempts} the event is dead and left to {@link BookingReconciler}.
+ * CONFIRM events run one saga each, RELEASE events are sent to hotel-service in bulk.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxWorker {
+    private final OutboxRepository outboxRepo;
+    private final SagaOrchestrator saga;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    @Value("${booking.outbox.workers:8}") int workers;
+    @Value("${booking.outbox.queue-capacity:100}") int queueCapacity;
+    @Value("${booking.outbox.batch-size:50}") int batchSize;
+    @Value("${booking.outbox.release-batch-size:100}") int releaseBatchSize;
+    @Value("${booking.outbox.lease-ms:30000}") long leaseMs;
+    @Value("${booking.outbox.max-attempts:10}") int maxAttempts;
+    @Value("${booking.outbox.backoff-ms:1000}") long backoffMs;
+    @Value("${booking.outbox.max-backoff-ms:60000}") long maxBackoffMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "booking-outbox-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        meterRegistry.gauge("booking.outbox.in_flight", executor, e -> e.getActiveCount() + e.getQueue().size());
+        meterRegistry.gauge("booking.outbox.dead", outboxRepo, r -> r.countByAttemptsGreaterThanEqual(maxAttempts));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:200}")
+    public void poll() {
+        try {
+            drain();
+        } catch (Exception ex) {
+            log.warn("Outbox poll failed: {}", ex.getMessage());
+        }
+    }
+
+    /** Claims and hands off one round of due events; returns how many were handed off. */
+    public int drain() {
+        int handedOff = 0;
+        // Releases are coalesced: a claimed batch becomes one bulk call and takes a single worker slot
+        if (freeSlots() > 0) {
+            List<OutboxEvent> releases = claim("RELEASE", releaseBatchSize);
+            if (!releases.isEmpty()) executor.execute(() -> processReleases(releases));
+            handedOff += releases.size();
+        }
+        int capacity = Math.min(batchSize, freeSlots());
+        if (capacity > 0) {
+            List<OutboxEvent> confirms = claim("CONFIRM", capacity);
+            confirms.forEach(event -> executor.execute(() -> processConfirm(event)));
+            handedOff += confirms.size();
+        }
+        return handedOff;
+    }
+
+    private int freeSlots() {
+        return workers - executor.getActiveCount() + executor.getQueue().remainingCapacity();
+    }
+
+    private List<OutboxEvent> claim(String type, int limit) {
+        Instant now = Instant.now();
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> outboxRepo
+                .findDue(type, now, maxAttempts, PageRequest.of(0, limit)).stream()
+                .filter(e -> outboxRepo.claim(e.getId(), e.getAvailableAt(), now.plusMillis(leaseMs)) == 1)
+                .toList());
+        return claimed != null ? claimed : List.of();
+    }
+
+    private void processConfirm(OutboxEvent event) {
+        try {
+            saga.processConfirm(event.getBookingId());
+            transactionTemplate.executeWithoutResult(status -> outboxRepo.deleteById(event.getId()));
+        } catch (Exception ex) {
+            Instant retryAt = retryAt(event);
+            log.warn("Outbox event {} for booking {} failed, will retry at {}: {}",
+                    event.getId(), event.getBookingId(), retryAt, ex.getMessage());
+            reschedule(List.of(event.getId()), retryAt);
+        }
+    }
+
+    private void processReleases(List<OutboxEvent> events) {
+        try {
+            saga.releaseLocks(events.stream().map(OutboxEvent::getBookingId).toList());
+            List<Long> ids = events.stream().map(OutboxEvent::getId).toList();
+            transactionTemplate.executeWithoutResult(status -> outboxRepo.deleteByIdIn(ids));
+        } catch (Exception ex) {
+            // A claimed batch shares one attempt count in practice, so the first event paces them all
+            Instant retryAt = retryAt(events.get(0));
+            log.warn("Release of {} cancelled bookings failed, will retry at {}: {}", events.size(), retryAt, ex.getMessage());
+            reschedule(events.stream().map(OutboxEvent::getId).toList(), retryAt);
+        }
+    }
+
+    // The claim counted this attempt, so the first failure waits backoff-ms, then it doubles up to max-backoff-ms
+    private Instant retryAt(OutboxEvent event) {
+        int failures = Math.min(event.getAttempts() + 1, 30);
+        return Instant.now().plusMillis(Math.min(maxBackoffMs, backoffMs << (failures - 1)));
+    }
+
+    // Best effort: if this fails too, the event is retried when its lease runs out
+    private void reschedule(List<Long> ids, Instant retryAt) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepo.reschedule(ids, retryAt));
+        } catch (Exception ex) {
+            log.warn("Could not reschedule outbox events {}: {}", ids, ex.getMessage());
+        }
+    }
+}
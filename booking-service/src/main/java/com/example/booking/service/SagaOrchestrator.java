@@ -1,56 +1,243 @@
 package com.example.booking.service;
 import com.example.booking.entity.Booking;
-import com.example.booking.entity.ProcessedRequest;
+import com.example.booking.entity.OutboxEvent;
 import com.example.booking.repo.BookingRepository;
-import com.example.booking.repo.ProcessedRequestRepository;
+import com.example.booking.repo.OutboxRepository;
 import lombok.RequiredArgsConstructor;
-import org.slf4j.MDC;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+/**
+ * Booking saga as a persisted state machine: PENDING -> CONFIRMING -> CONFIRMED or CANCELLED.
+ * Every step is its own short transaction, and the call to hotel-service runs between them, so no
+ * database connection is held during network I/O. In asynchronous mode the booking is queued in the
+ * outbox instead and driven by {@link OutboxWorker}.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SagaOrchestrator {
     private final BookingRepository bookingRepo;
-    private final ProcessedRequestRepository processedRepo;
+    private final IdempotencyStore idempotency;
     private final HotelClient hotelClient;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxRepository outboxRepo;
+    private final BookingStatusWatcher watcher;
+    private final ConfirmedStays confirmedStays;
 
-    @Transactional
     public Booking createBooking(Long userId, Long roomId, LocalDate start, LocalDate end, String requestId) {
+        return createBooking(userId, roomId, null, start, end, requestId);
+    }
+
+    /** A null {@code roomId} lets hotel-service pick the fairest free room, optionally within {@code hotelId}. */
+    public Booking createBooking(Long userId, Long roomId, Long hotelId, LocalDate start, LocalDate end, String requestId) {
         if (requestId == null || requestId.isBlank()) requestId = UUID.randomUUID().toString();
         String rid = requestId;
-        Booking existing = bookingRepo.findByRequestId(rid).orElse(null);
+        Booking existing = findExisting(rid).orElse(null);
         if (existing != null) return existing;
 
-        Booking booking = Booking.builder()
-                .userId(userId).roomId(roomId)
-                .startDate(start).endDate(end)
-                .status("PENDING")
-                .requestId(rid)
-                .bookingUid(UUID.randomUUID().toString())
-                .createdAt(Instant.now()).updatedAt(Instant.now())
-                .build();
-        bookingRepo.save(booking);
-        processedRepo.save(ProcessedRequest.builder()
-                .requestId(rid).bookingId(booking.getId()).status("PENDING").updatedAt(Instant.now()).build());
+        Booking booking;
+        try {
+            booking = transactionTemplate.execute(status -> open(userId, roomId, hotelId, start, end, rid));
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent request with the same id won the insert
+            return bookingRepo.findByRequestId(rid).orElseThrow(() -> ex);
+        }
+        idempotency.remember(rid, booking.getId());
+
+        return drive(booking);
+    }
+
+    // Asynchronous mode: the booking and its outbox event are written in one transaction
+    public Booking submitBooking(Long userId, Long roomId, LocalDate start, LocalDate end, String requestId) {
+        return submitBooking(userId, roomId, null, start, end, requestId);
+    }
+
+    public Booking submitBooking(Long userId, Long roomId, Long hotelId, LocalDate start, LocalDate end, String requestId) {
+        if (requestId == null || requestId.isBlank()) requestId = UUID.randomUUID().toString();
+        String rid = requestId;
+        Booking existing = findExisting(rid).orElse(null);
+        if (existing != null) return existing;
+
+        try {
+            Booking booking = transactionTemplate.execute(status -> {
+                Booking opened = open(userId, roomId, hotelId, start, end, rid);
+                queue(opened.getId(), "CONFIRM", opened.getCreatedAt());
+                return opened;
+            });
+            idempotency.remember(rid, booking.getId());
+            return booking;
+        } catch (DataIntegrityViolationException ex) {
+            return bookingRepo.findByRequestId(rid).orElseThrow(() -> ex);
+        }
+    }
+
+    // Ids the filter has never seen skip the lookup; recent ids go straight to their booking by key
+    private Optional<Booking> findExisting(String rid) {
+        if (!idempotency.mightExist(rid)) return Optional.empty();
+        Long bookingId = idempotency.cachedBookingId(rid);
+        if (bookingId != null) {
+            Optional<Booking> cached = bookingRepo.findById(bookingId);
+            if (cached.isPresent()) return cached;
+        }
+        return bookingRepo.findByRequestId(rid);
+    }
 
+    /**
+     * Outbox step for a queued booking; a hotel refusal is a final outcome, not a failure to retry.
+     * An unreachable hotel leaves the booking CONFIRMING and rethrows, so the event is retried after its lease.
+     */
+    public void processConfirm(Long bookingId) {
+        Booking booking = bookingRepo.findById(bookingId).orElse(null);
+        if (booking == null) return;
+        try {
+            drive(booking);
+        } catch (Exception ex) {
+            if (!BookingStatusWatcher.isFinal(booking)) throw ex;
+            log.info("Booking {} cancelled: {}", bookingId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Takes a PENDING booking, or one left CONFIRMING by an interrupted worker, to a final state.
+     * When hotel-service cannot be reached the outcome is unknown, so the booking stays CONFIRMING:
+     * the hotel call is idempotent by request id, and the outbox retry or the reconciler settles it.
+     */
+    private Booking drive(Booking booking) {
+        if ("PENDING".equals(booking.getStatus())) {
+            if (!transition(booking, "PENDING", "CONFIRMING")) return reload(booking);
+        } else if (!"CONFIRMING".equals(booking.getStatus())) {
+            return booking;
+        }
+        boolean autoSelect = booking.getRoomId() == null;
+        if (!autoSelect && confirmedStays.conflicts(booking)) {
+            // Nothing was locked yet, so there is nothing to compensate
+            transition(booking, "CONFIRMING", "CANCELLED");
+            throw new IllegalStateException("Room " + booking.getRoomId() + " is not available for the selected dates");
+        }
+        Long roomId;
         try {
-            hotelClient.confirm(roomId, start, end, booking.getBookingUid(), rid);
-            booking.setStatus("CONFIRMED");
-            booking.setUpdatedAt(Instant.now());
-            processedRepo.save(ProcessedRequest.builder()
-                    .requestId(rid).bookingId(booking.getId()).status("CONFIRMED").updatedAt(Instant.now()).build());
+            // Auto selection is one hop too: hotel-service walks the fair order and locks the first free room
+            roomId = confirmedStays.timeHotelCall(() -> autoSelect
+                    ? hotelClient.reserveAny(booking.getHotelId(), booking.getStartDate(), booking.getEndDate(), booking.getBookingUid(), booking.getRequestId())
+                    : confirmRoom(booking));
+        } catch (HotelUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
-            try { hotelClient.release(roomId, rid); } catch (Exception ignored) {}
-            booking.setStatus("CANCELLED");
-            booking.setUpdatedAt(Instant.now());
-            processedRepo.save(ProcessedRequest.builder()
-                    .requestId(rid).bookingId(booking.getId()).status("CANCELLED").updatedAt(Instant.now()).build());
+            compensate(booking);
+            transition(booking, "CONFIRMING", "CANCELLED");
             throw ex;
         }
+        Long chosen = roomId;
+        if (!transition(booking, "CONFIRMING", "CONFIRMED", now -> { if (autoSelect) bookingRepo.assignRoom(booking.getId(), chosen); })) {
+            // Cancelled while the hotel call was in flight: give the room back
+            compensate(booking);
+            throw new IllegalStateException("Booking was cancelled while it was being confirmed");
+        }
+        booking.setRoomId(chosen);
+        confirmedStays.add(booking.getId(), chosen, booking.getStartDate(), booking.getEndDate(), booking.getUpdatedAt());
+        return booking;
+    }
+
+    private Long confirmRoom(Booking booking) {
+        hotelClient.confirm(booking.getRoomId(), booking.getStartDate(), booking.getEndDate(), booking.getBookingUid(), booking.getRequestId());
+        return booking.getRoomId();
+    }
+
+    // Best effort; an auto-selected booking may hold a room it never learned, so it is released by request id
+    private void compensate(Booking booking) {
+        try {
+            if (booking.getRoomId() != null) hotelClient.release(booking.getRoomId(), booking.getRequestId());
+            else hotelClient.releaseBatch(List.of(booking.getRequestId()));
+        } catch (Exception ignored) {
+        }
+    }
+
+    /** Settles a stuck booking from what hotel-service holds: a lock means confirmed in that room, none means cancelled. */
+    public boolean reconcile(Booking booking, Long lockedRoomId) {
+        String from = booking.getStatus();
+        if (!"PENDING".equals(from) && !"CONFIRMING".equals(from)) return false;
+        if (lockedRoomId == null) return transition(booking, from, "CANCELLED");
+        if (!transition(booking, from, "CONFIRMED", now -> bookingRepo.assignRoom(booking.getId(), lockedRoomId))) return false;
+        confirmedStays.add(booking.getId(), lockedRoomId, booking.getStartDate(), booking.getEndDate(), booking.getUpdatedAt());
+        return true;
+    }
+
+    /**
+     * Cancels the booking and queues the release of its room lock in the same transaction, so the
+     * release survives a restart. Cancelling an already cancelled booking is a no-op.
+     */
+    public void cancel(Booking booking) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Booking current = booking;
+            String from = current.getStatus();
+            if ("CANCELLED".equals(from)) return;
+            if (transition(current, from, "CANCELLED", now -> queue(current.getId(), "RELEASE", now))) return;
+            booking = reload(current);
+        }
+        throw new IllegalStateException("Booking is changing concurrently, please retry");
+    }
+
+    /** Frees the room locks of cancelled bookings with one bulk call. */
+    public void releaseLocks(List<Long> bookingIds) {
+        List<String> requestIds = bookingRepo.findAllById(bookingIds).stream()
+                .map(Booking::getRequestId)
+                .distinct()
+                .toList();
+        if (!requestIds.isEmpty()) hotelClient.releaseBatch(requestIds);
+    }
+
+    private void queue(Long bookingId, String type, Instant now) {
+        outboxRepo.save(OutboxEvent.builder()
+                .bookingId(bookingId).type(type)
+                .availableAt(now).createdAt(now)
+                .build());
+    }
+
+    private Booking open(Long userId, Long roomId, Long hotelId, LocalDate start, LocalDate end, String rid) {
+        Instant now = Instant.now();
+        Booking booking = bookingRepo.save(Booking.builder()
+                .userId(userId).roomId(roomId).hotelId(hotelId)
+                .startDate(start).endDate(end)
+                .status("PENDING")
+                .requestId(rid)
+                .bookingUid(UUID.randomUUID().toString())
+                .createdAt(now).updatedAt(now)
+                .build());
+        idempotency.record(rid, booking.getId(), "PENDING", now);
         return booking;
     }
-}
\ No newline at end of file
+
+    // Moves the booking only if it is still in the expected state; false when someone else moved it first
+    private boolean transition(Booking booking, String from, String to) {
+        return transition(booking, from, to, now -> {});
+    }
+
+    private boolean transition(Booking booking, String from, String to, Consumer<Instant> alsoInTransaction) {
+        Instant now = Instant.now();
+        Boolean moved = transactionTemplate.execute(status -> {
+            if (bookingRepo.transition(booking.getId(), from, to, now) == 0) return false;
+            idempotency.record(booking.getRequestId(), booking.getId(), to, now);
+            alsoInTransaction.accept(now);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(moved)) return false;
+        booking.setStatus(to);
+        booking.setUpdatedAt(now);
+        if ("CANCELLED".equals(to)) confirmedStays.remove(booking);
+        if (BookingStatusWatcher.isFinal(booking)) watcher.finished(booking.getId());
+        return true;
+    }
+
+    private Booking reload(Booking booking) {
+        return bookingRepo.findById(booking.getId()).orElse(booking);
+    }
+}
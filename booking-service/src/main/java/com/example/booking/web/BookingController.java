@@ -1,21 +1,31 @@
 package com.example.booking.web;
+import com.example.booking.dto.BookingCursor;
+import com.example.booking.dto.BookingHistoryPage;
 import com.example.booking.entity.Booking;
 import com.example.booking.repo.BookingRepository;
+import com.example.booking.repo.BookingRepository.BookingSummary;
+import com.example.booking.service.BookingStatusWatcher;
 import com.example.booking.service.SagaOrchestrator;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import java.net.URI;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping
@@ -23,12 +33,16 @@ import java.time.LocalDate;
 public class BookingController {
     private final SagaOrchestrator saga;
     private final BookingRepository bookingRepo;
+    private final BookingStatusWatcher watcher;
+    @Value("${booking.long-poll.max-wait-ms:25000}") long maxWaitMs;
+    @Value("${booking.history.max-page-size:100}") int maxPageSize;
 
     @PostMapping("/booking")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<Booking> create(
             @Valid @RequestBody BookingRequest req, 
             @RequestHeader(name="X-Request-Id", required=false) String rid, 
+            @RequestHeader(name="Prefer", required=false) String prefer,
             Authentication auth) {
         if (req.startDate.isAfter(req.endDate) || req.startDate.isEqual(req.endDate)) {
             throw new IllegalArgumentException("Start date must be before end date");
@@ -36,20 +50,53 @@ public class BookingController {
         if (req.startDate.isBefore(LocalDate.now())) {
             throw new IllegalArgumentException("Start date cannot be in the past");
         }
-        Booking b = saga.createBooking(Long.valueOf(auth.getName()), req.roomId, req.startDate, req.endDate, rid);
+        // With autoSelect hotel-service picks the room, so any roomId sent along is ignored
+        Long roomId = req.autoSelect ? null : req.roomId;
+        // Prefer: respond-async queues the saga and answers 202 right away; poll GET /booking/{id} for the outcome
+        if (prefer != null && prefer.contains("respond-async")) {
+            Booking b = saga.submitBooking(Long.valueOf(auth.getName()), roomId, req.hotelId, req.startDate, req.endDate, rid);
+            return ResponseEntity.accepted().location(URI.create("/booking/" + b.getId())).body(b);
+        }
+        Booking b = saga.createBooking(Long.valueOf(auth.getName()), roomId, req.hotelId, req.startDate, req.endDate, rid);
         return ResponseEntity.ok(b);
     }
 
     @GetMapping("/bookings")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public Page<Booking> my(
+    public Slice<?> my(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean count,
             Authentication auth) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending().and(Sort.by("id").descending()));
+        // count=false answers a Slice of summaries and skips the count query
+        if (!count) return bookingRepo.findSliceByUserId(Long.valueOf(auth.getName()), pageable);
         return bookingRepo.findByUserId(Long.valueOf(auth.getName()), pageable);
     }
 
+    // Keyset history: pass an empty cursor for the first page, then each response's nextCursor
+    @GetMapping(value = "/bookings", params = "cursor")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public BookingHistoryPage history(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication auth) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Size must be between 1 and " + maxPageSize);
+        }
+        Long userId = Long.valueOf(auth.getName());
+        Pageable limit = PageRequest.of(0, size);
+        List<BookingSummary> items;
+        if (cursor.isEmpty()) {
+            items = bookingRepo.findHistoryFirst(userId, limit);
+        } else {
+            BookingCursor after = BookingCursor.decode(cursor);
+            items = bookingRepo.findHistoryAfter(userId, after.createdAt(), after.id(), limit);
+        }
+        BookingSummary last = items.size() == size ? items.get(items.size() - 1) : null;
+        return new BookingHistoryPage(items, last != null ? new BookingCursor(last.getCreatedAt(), last.getId()).encode() : null);
+    }
+
     @GetMapping("/booking/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<Booking> one(@PathVariable Long id, Authentication auth) {
@@ -59,19 +106,39 @@ public class BookingController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Long poll: answers as soon as the booking is CONFIRMED or CANCELLED, or with its current state after waitMs
+    @GetMapping(value = "/booking/{id}", params = "waitMs")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public CompletableFuture<ResponseEntity<Booking>> await(
+            @PathVariable Long id,
+            @RequestParam long waitMs,
+            Authentication auth) {
+        Long userId = Long.valueOf(auth.getName());
+        CompletableFuture<Void> done = watcher.watch(id);
+        Booking current = bookingRepo.findById(id).filter(b -> b.getUserId().equals(userId)).orElse(null);
+        if (current == null || BookingStatusWatcher.isFinal(current) || waitMs <= 0) {
+            watcher.forget(id, done);
+            return CompletableFuture.completedFuture(current != null ? ResponseEntity.ok(current) : ResponseEntity.notFound().build());
+        }
+        return done.completeOnTimeout(null, Math.min(waitMs, maxWaitMs), TimeUnit.MILLISECONDS)
+                .whenComplete((v, ex) -> watcher.forget(id, done))
+                .thenApply(v -> bookingRepo.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build()));
+    }
+
     @DeleteMapping("/booking/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> cancel(@PathVariable Long id, Authentication auth) {
         return bookingRepo.findById(id)
                 .filter(b -> b.getUserId().equals(Long.valueOf(auth.getName())))
-                .map(b -> { b.setStatus("CANCELLED"); bookingRepo.save(b); return ResponseEntity.ok().build(); })
+                .map(b -> { saga.cancel(b); return ResponseEntity.ok().build(); })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @Data
     static class BookingRequest { 
-        @NotNull(message = "Room ID is required")
         Long roomId; 
+
+        Long hotelId;
         
         @NotNull(message = "Start date is required")
         LocalDate startDate; 
@@ -80,5 +147,10 @@ public class BookingController {
         LocalDate endDate; 
         
         boolean autoSelect; 
+
+        @AssertTrue(message = "Room ID is required unless autoSelect is set")
+        boolean isRoomChosen() {
+            return autoSelect || roomId != null;
+        }
     }
 }
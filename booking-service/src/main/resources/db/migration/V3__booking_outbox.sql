@@ -0,0 +1,11 @@
+-- Work queued by the asynchronous booking pipeline, written in the same transaction as the booking
+CREATE TABLE booking_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_id BIGINT NOT NULL,
+    type VARCHAR(50) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_booking_outbox_available ON booking_outbox(available_at, id);
@@ -0,0 +1,3 @@
+-- Auto-selected bookings learn their room from hotel-service, so room_id is unknown until confirmed
+ALTER TABLE bookings ALTER COLUMN room_id DROP NOT NULL;
+ALTER TABLE bookings ADD COLUMN hotel_id BIGINT;
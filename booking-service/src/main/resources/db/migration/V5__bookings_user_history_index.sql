@@ -0,0 +1,3 @@
+-- Keyset index for a user's booking history, newest first. idx_bookings_user_id stays: H2 backs
+-- fk_bookings_user with it and refuses to drop it
+CREATE INDEX idx_bookings_user_created ON bookings(user_id, created_at DESC, id DESC);
@@ -4,6 +4,7 @@ import com.example.booking.entity.Booking;
 import com.example.booking.entity.User;
 import com.example.booking.repo.BookingRepository;
 import com.example.booking.repo.ProcessedRequestRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,10 +18,15 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -135,6 +141,56 @@ class BookingControllerValidationTest {
                 .andExpect(jsonPath("$.number", is(0)));
     }
 
+    @Test
+    @WithMockUser(username = "1", roles = {"USER"})
+    void testGetBookingsByCursorWalksEveryBookingOnce() throws Exception {
+        // Given - five bookings sharing one createdAt, so pages are split by id
+        Instant createdAt = Instant.now();
+        for (int i = 1; i <= 5; i++) {
+            bookingRepository.save(Booking.builder()
+                    .userId(1L)
+                    .roomId(1L)
+                    .startDate(LocalDate.now().plusDays(i))
+                    .endDate(LocalDate.now().plusDays(i + 2))
+                    .status("CONFIRMED")
+                    .requestId("cursor-req-" + i)
+                    .bookingUid("cursor-uid-" + i)
+                    .createdAt(createdAt)
+                    .updatedAt(createdAt)
+                    .build());
+        }
+
+        // When - follow nextCursor from the first page until it runs out
+        Set<Long> seen = new LinkedHashSet<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            String body = mockMvc.perform(get("/bookings")
+                    .param("cursor", cursor)
+                    .param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].userId").doesNotExist())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode page = objectMapper.readTree(body);
+            page.get("items").forEach(item -> seen.add(item.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        }
+
+        // Then - every booking appears exactly once, newest id first
+        assertEquals(3, pages);
+        assertEquals(5, seen.size());
+        assertEquals(seen.stream().sorted(Comparator.reverseOrder()).toList(), List.copyOf(seen));
+    }
+
+    @Test
+    @WithMockUser(username = "1", roles = {"USER"})
+    void testGetBookingsWithMalformedCursor() throws Exception {
+        mockMvc.perform(get("/bookings")
+                .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "1", roles = {"USER"})
     void testGetBooking_OnlyOwnBookings() throws Exception {
@@ -0,0 +1,116 @@
+package com.example.booking;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.entity.OutboxEvent;
+import com.example.booking.repo.BookingRepository;
+import com.example.booking.repo.OutboxRepository;
+import com.example.booking.service.BookingReconciler;
+import com.example.booking.service.HotelClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {"booking.reconciler.enabled=false", "booking.outbox.max-attempts=3"})
+class BookingReconcilerTest {
+
+    @Autowired
+    private BookingReconciler reconciler;
+
+    @Autowired
+    private BookingRepository bookingRepo;
+
+    @Autowired
+    private OutboxRepository outboxRepo;
+
+    @MockBean
+    private HotelClient hotelClient;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepo.deleteAll();
+        bookingRepo.deleteAll();
+    }
+
+    private Booking stuck(String uid, String status, Instant updatedAt) {
+        return bookingRepo.save(Booking.builder()
+                .userId(1L).roomId(1L)
+                .startDate(LocalDate.now().plusDays(1)).endDate(LocalDate.now().plusDays(2))
+                .status(status).requestId("req-" + uid).bookingUid(uid)
+                .createdAt(updatedAt).updatedAt(updatedAt)
+                .build());
+    }
+
+    @Test
+    void testStuckBookingsAreSettledFromHotelLocks() {
+        // Given
+        Instant old = Instant.now().minus(Duration.ofHours(1));
+        Booking locked = stuck("uid-locked", "CONFIRMING", old);
+        Booking unlocked = stuck("uid-unlocked", "PENDING", old);
+        Booking fresh = stuck("uid-fresh", "PENDING", Instant.now());
+        when(hotelClient.lookupLocks(anyCollection()))
+                .thenReturn(List.of(new HotelClient.LockInfo(1L, "uid-locked", "req-uid-locked")));
+
+        // When
+        int settled = reconciler.reconcile();
+
+        // Then: one lookup for the whole batch, and recent bookings are left to their saga
+        assertEquals(2, settled);
+        verify(hotelClient, times(1)).lookupLocks(anyCollection());
+        assertEquals("CONFIRMED", bookingRepo.findById(locked.getId()).orElseThrow().getStatus());
+        assertEquals("CANCELLED", bookingRepo.findById(unlocked.getId()).orElseThrow().getStatus());
+        assertEquals("PENDING", bookingRepo.findById(fresh.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testBookingWhoseConfirmEventIsDeadIsSettled() {
+        // Given one stuck booking whose event used up its attempts, and one the outbox still retries
+        Instant old = Instant.now().minus(Duration.ofHours(1));
+        Booking dead = stuck("uid-dead", "CONFIRMING", old);
+        Booking retrying = stuck("uid-retrying", "CONFIRMING", old);
+        outboxRepo.save(event(dead.getId(), "CONFIRM", 3));
+        outboxRepo.save(event(retrying.getId(), "CONFIRM", 2));
+        when(hotelClient.lookupLocks(anyCollection())).thenReturn(List.of());
+
+        // When
+        int settled = reconciler.reconcile();
+
+        // Then: the dead one is settled and its event dropped; the live event is left to the worker
+        assertEquals(1, settled);
+        assertEquals("CANCELLED", bookingRepo.findById(dead.getId()).orElseThrow().getStatus());
+        assertEquals("CONFIRMING", bookingRepo.findById(retrying.getId()).orElseThrow().getStatus());
+        assertEquals(List.of(retrying.getId()), outboxRepo.findAll().stream().map(OutboxEvent::getBookingId).toList());
+    }
+
+    @Test
+    void testDeadReleaseEventsAreSentByReconciler() {
+        // Given a cancelled booking whose release used up its attempts
+        Booking cancelled = stuck("uid-cancelled", "CANCELLED", Instant.now());
+        outboxRepo.save(event(cancelled.getId(), "RELEASE", 3));
+
+        // When
+        reconciler.reconcile();
+
+        // Then: its lock is freed in bulk and the event is gone
+        verify(hotelClient, times(1)).releaseBatch(List.of("req-uid-cancelled"));
+        assertEquals(0, outboxRepo.count());
+    }
+
+    private static OutboxEvent event(Long bookingId, String type, int attempts) {
+        Instant now = Instant.now();
+        return OutboxEvent.builder()
+                .bookingId(bookingId).type(type).attempts(attempts)
+                .availableAt(now.plus(Duration.ofMinutes(10))).createdAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.booking;
+
+import com.example.booking.service.HotelCircuitBreaker;
+import com.example.booking.service.HotelUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "booking.saga.hotel.breaker.window-size=4",
+        "booking.saga.hotel.breaker.minimum-calls=4",
+        "booking.saga.hotel.breaker.failure-rate-threshold=50",
+        "booking.saga.hotel.breaker.open-ms=200"})
+class HotelCircuitBreakerTest {
+
+    @Autowired
+    private HotelCircuitBreaker breaker;
+
+    private void call(Throwable error) {
+        Mono<Object> attempt = error == null ? Mono.empty() : Mono.error(error);
+        try {
+            breaker.protect(attempt, ex -> ex instanceof TimeoutException).block();
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Test
+    void testOpensOnTransientFailuresAndRecoversThroughProbe() throws Exception {
+        // Definite answers such as a conflict do not count against hotel-service
+        for (int i = 0; i < 4; i++) call(new IllegalStateException("conflict"));
+        assertEquals(HotelCircuitBreaker.State.CLOSED, breaker.state());
+
+        // Given two timeouts in a window of four
+        call(new TimeoutException());
+        call(null);
+        call(new TimeoutException());
+        call(null);
+        assertEquals(HotelCircuitBreaker.State.OPEN, breaker.state());
+
+        // Then calls fail fast without reaching hotel-service
+        AtomicInteger subscribed = new AtomicInteger();
+        Mono<Object> attempt = Mono.fromCallable(subscribed::incrementAndGet).then(Mono.empty());
+        assertThrows(HotelUnavailableException.class, () -> breaker.protect(attempt, ex -> true).block());
+        assertEquals(0, subscribed.get());
+
+        // And after the open period one successful probe closes it again
+        Thread.sleep(250);
+        breaker.protect(attempt, ex -> true).block();
+        assertEquals(1, subscribed.get());
+        assertEquals(HotelCircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
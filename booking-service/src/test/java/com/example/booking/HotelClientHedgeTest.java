@@ -0,0 +1,83 @@
+package com.example.booking;
+
+import com.example.booking.service.HotelClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "booking.saga.hotel.hedge-release=true",
+        "booking.saga.hotel.hedge-delay-ms=200"})
+class HotelClientHedgeTest {
+
+    // Stub hotel-service: the first release of room 2 takes a second, every other call answers at once
+    @TestConfiguration
+    static class StubHotel {
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        @Bean
+        @Primary
+        WebClient stubWebClient() {
+            return WebClient.builder()
+                    .exchangeFunction(request -> {
+                        String path = request.url().getPath();
+                        int n = calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+                        Mono<ClientResponse> ok = Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                        return path.equals("/api/rooms/2/release") && n == 1 ? ok.delayElement(Duration.ofSeconds(1)) : ok;
+                    })
+                    .build();
+        }
+    }
+
+    @Autowired
+    private HotelClient hotelClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StubHotel stub;
+
+    @Test
+    void testFastReleaseSendsNoHedge() {
+        double before = hedges();
+
+        hotelClient.release(1L, "req-hedge-fast");
+
+        assertEquals(before, hedges());
+        assertEquals(1, stub.calls.get("/api/rooms/1/release").get());
+    }
+
+    @Test
+    void testSlowReleaseIsHedgedOnce() {
+        double before = hedges();
+
+        hotelClient.release(2L, "req-hedge-slow");
+
+        assertEquals(before + 1, hedges());
+        assertEquals(2, stub.calls.get("/api/rooms/2/release").get());
+    }
+
+    private double hedges() {
+        return Optional.ofNullable(meterRegistry.find("booking.hotel.hedges").tag("operation", "release").counter())
+                .map(Counter::count)
+                .orElse(0.0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.booking;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.repo.ProcessedRequestRepository;
+import com.example.booking.service.HotelClient;
+import com.example.booking.service.IdempotencyStore;
+import com.example.booking.service.SagaOrchestrator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyStore idempotency;
+
+    @Autowired
+    private SagaOrchestrator saga;
+
+    @Autowired
+    private ProcessedRequestRepository processedRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private HotelClient hotelClient;
+
+    @Test
+    void testKnownAndUnknownRequestIds() {
+        // Given
+        String unknown = UUID.randomUUID().toString();
+        assertFalse(idempotency.mightExist(unknown));
+
+        // When
+        Booking booking = saga.createBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), "req-idem-001");
+
+        // Then
+        assertTrue(idempotency.mightExist("req-idem-001"));
+        assertEquals(booking.getId(), idempotency.cachedBookingId("req-idem-001"));
+        assertEquals("CONFIRMED", processedRepo.findById("req-idem-001").orElseThrow().getStatus());
+    }
+
+    @Test
+    void testCompactionDropsOnlyOldFinishedRows() {
+        // Given
+        Instant old = Instant.now().minus(Duration.ofDays(60));
+        transactionTemplate.executeWithoutResult(status -> {
+            idempotency.record("req-idem-old-done", 1L, "CONFIRMED", old);
+            idempotency.record("req-idem-old-open", 2L, "CONFIRMING", old);
+            idempotency.record("req-idem-new-done", 3L, "CANCELLED", Instant.now());
+        });
+
+        // When
+        idempotency.compact();
+
+        // Then
+        assertFalse(processedRepo.existsById("req-idem-old-done"));
+        assertTrue(processedRepo.existsById("req-idem-old-open"));
+        assertTrue(processedRepo.existsById("req-idem-new-done"));
+    }
+
+    @Test
+    void testConcurrentRecordsOfNewIdDoNotConflict() throws Exception {
+        // Given several transactions recording the same unseen id at once
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                startGate.await();
+                transactionTemplate.executeWithoutResult(status ->
+                        idempotency.record("req-idem-race", 7L, "PENDING", Instant.now()));
+                return null;
+            }));
+        }
+        startGate.countDown();
+
+        // Then none fails on the unique key, and a later state still lands on the one row
+        for (Future<?> result : results) result.get();
+        executor.shutdown();
+        transactionTemplate.executeWithoutResult(status ->
+                idempotency.record("req-idem-race", 7L, "CONFIRMING", Instant.now()));
+        assertEquals("CONFIRMING", processedRepo.findById("req-idem-race").orElseThrow().getStatus());
+    }
+}
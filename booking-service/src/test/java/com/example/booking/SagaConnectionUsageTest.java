@@ -0,0 +1,80 @@
+package com.example.booking;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.service.HotelClient;
+import com.example.booking.service.SagaOrchestrator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Pool usage under injected hotel latency: many concurrent sagas against a two-connection pool,
+ * with every hotel call sleeping. The calling thread may hold no transaction and no connection
+ * while a call is in flight.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000",
+        // Every saga books the same room, which is about the pool, not about overlaps
+        "booking.precheck.enabled=false"})
+class SagaConnectionUsageTest {
+    private static final long HOTEL_LATENCY_MS = 300;
+    private static final int SAGAS = 16;
+
+    @Autowired
+    private SagaOrchestrator saga;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockBean
+    private HotelClient hotelClient;
+
+    @Test
+    void testNoConnectionHeldDuringHotelCall() throws Exception {
+        // Given
+        AtomicInteger callsInTransaction = new AtomicInteger();
+        doAnswer(inv -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    || TransactionSynchronizationManager.hasResource(dataSource)) {
+                callsInTransaction.incrementAndGet();
+            }
+            Thread.sleep(HOTEL_LATENCY_MS);
+            return null;
+        }).when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(SAGAS);
+        long started = System.nanoTime();
+        List<Future<Booking>> results = new ArrayList<>();
+        for (int i = 0; i < SAGAS; i++) {
+            String rid = "req-pool-" + i;
+            results.add(executor.submit(() -> saga.createBooking(1L, 1L,
+                    LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), rid)));
+        }
+        for (Future<Booking> result : results) {
+            assertEquals("CONFIRMED", result.get().getStatus());
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        executor.shutdown();
+
+        // Then: holding a connection across the call would serialize the sagas 2 at a time
+        assertEquals(0, callsInTransaction.get());
+        assertTrue(elapsedMs < SAGAS / 2 * HOTEL_LATENCY_MS, "sagas were serialized on the pool: " + elapsedMs + " ms");
+    }
+}
@@ -14,6 +14,7 @@ import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -131,4 +132,57 @@ class SagaOrchestratorTest {
         assertNotNull(b2);
         assertNotEquals(b1.getId(), b2.getId());
     }
+
+    @Test
+    void testAutoSelectReservesRoomInOneCall() {
+        // Given
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        when(hotelClient.reserveAny(eq(1L), eq(start), eq(end), any(), eq("req-auto-001"))).thenReturn(7L);
+
+        // When no room is given
+        Booking booking = saga.createBooking(1L, null, 1L, start, end, "req-auto-001");
+
+        // Then hotel-service chose it, and the choice is stored
+        assertEquals("CONFIRMED", booking.getStatus());
+        assertEquals(7L, booking.getRoomId());
+        assertEquals(7L, bookingRepo.findById(booking.getId()).orElseThrow().getRoomId());
+        verify(hotelClient, never()).confirm(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testOverlappingBookingRejectedLocally() {
+        // Given a confirmed stay in room 1
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        doNothing().when(hotelClient).confirm(any(), any(), any(), any(), any());
+        saga.createBooking(1L, 1L, start, end, "req-precheck-001");
+
+        // When another booking asks for overlapping dates in the same room
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> saga.createBooking(2L, 1L, end, end.plusDays(2), "req-precheck-002"));
+
+        // Then it is cancelled without a hotel round trip or compensation
+        assertTrue(ex.getMessage().contains("not available"));
+        assertEquals("CANCELLED", bookingRepo.findByRequestId("req-precheck-002").orElseThrow().getStatus());
+        verify(hotelClient, never()).confirm(any(), any(), any(), any(), eq("req-precheck-002"));
+        verify(hotelClient, never()).release(any(), eq("req-precheck-002"));
+    }
+
+    @Test
+    void testStayNoLongerInDatabaseIsNotTrusted() {
+        // Given a confirmed stay whose row is gone
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        doNothing().when(hotelClient).confirm(any(), any(), any(), any(), any());
+        saga.createBooking(1L, 1L, start, end, "req-precheck-003");
+        bookingRepo.deleteAll();
+
+        // When the same dates are booked again
+        Booking booking = saga.createBooking(2L, 1L, start, end, "req-precheck-004");
+
+        // Then hotel-service decides
+        assertEquals("CONFIRMED", booking.getStatus());
+        verify(hotelClient).confirm(1L, start, end, booking.getBookingUid(), "req-precheck-004");
+    }
 }
@@ -0,0 +1,158 @@
+package com.example.booking;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.repo.BookingRepository;
+import com.example.booking.repo.OutboxRepository;
+import com.example.booking.service.BookingStatusWatcher;
+import com.example.booking.service.HotelClient;
+import com.example.booking.service.HotelUnavailableException;
+import com.example.booking.service.SagaOrchestrator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// A short backoff, so an event whose attempt failed is due again within the test. The database is this
+// test's own: workers of other cached contexts would otherwise claim its events with a real HotelClient
+@SpringBootTest(properties = {
+        "booking.outbox.backoff-ms=200",
+        "booking.outbox.max-attempts=4",
+        "spring.datasource.url=jdbc:h2:mem:outboxdb;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+})
+class SagaOutboxTest {
+
+    @Autowired
+    private SagaOrchestrator saga;
+
+    @Autowired
+    private BookingRepository bookingRepo;
+
+    @Autowired
+    private OutboxRepository outboxRepo;
+
+    @Autowired
+    private BookingStatusWatcher watcher;
+
+    @MockBean
+    private HotelClient hotelClient;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepo.deleteAll();
+        bookingRepo.deleteAll();
+    }
+
+    @Test
+    void testSubmittedBookingIsConfirmedByWorker() throws Exception {
+        // Given
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        doNothing().when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        // When
+        Booking booking = saga.submitBooking(1L, 1L, start, end, "req-async-001");
+        CompletableFuture<Void> done = watcher.watch(booking.getId());
+
+        // Then: accepted as PENDING, finished by the outbox worker
+        assertEquals("PENDING", booking.getStatus());
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals("CONFIRMED", bookingRepo.findById(booking.getId()).orElseThrow().getStatus());
+        verify(hotelClient, times(1)).confirm(1L, start, end, booking.getBookingUid(), "req-async-001");
+        // The event is deleted just after the booking settles
+        for (int i = 0; i < 50 && outboxRepo.count() > 0; i++) Thread.sleep(100);
+        assertEquals(0, outboxRepo.count());
+    }
+
+    @Test
+    void testSubmittedBookingIsCancelledWhenHotelRefuses() throws Exception {
+        // Given
+        doThrow(new RuntimeException("conflict")).when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        // When
+        Booking booking = saga.submitBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "req-async-002");
+        CompletableFuture<Void> done = watcher.watch(booking.getId());
+
+        // Then: the refusal is the outcome, so the event is not retried
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals("CANCELLED", bookingRepo.findById(booking.getId()).orElseThrow().getStatus());
+        verify(hotelClient, times(1)).release(1L, "req-async-002");
+        for (int i = 0; i < 50 && outboxRepo.count() > 0; i++) Thread.sleep(100);
+        assertEquals(0, outboxRepo.count());
+    }
+
+    @Test
+    void testSubmittedBookingSurvivesHotelOutage() throws Exception {
+        // Given hotel-service is down for the first attempt only
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        doThrow(new HotelUnavailableException("hotel-service is unavailable"))
+                .doNothing()
+                .when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        // When
+        Booking booking = saga.submitBooking(1L, 1L, start, end, "req-async-005");
+        CompletableFuture<Void> done = watcher.watch(booking.getId());
+
+        // Then: the outage is retried after a backoff instead of cancelling the booking
+        done.get(10, TimeUnit.SECONDS);
+        assertEquals("CONFIRMED", bookingRepo.findById(booking.getId()).orElseThrow().getStatus());
+        verify(hotelClient, times(2)).confirm(1L, start, end, booking.getBookingUid(), "req-async-005");
+        verify(hotelClient, never()).release(any(), any());
+        for (int i = 0; i < 50 && outboxRepo.count() > 0; i++) Thread.sleep(100);
+        assertEquals(0, outboxRepo.count());
+    }
+
+    @Test
+    void testRetriesBackOffUntilTheEventIsDead() throws Exception {
+        // Given hotel-service stays down
+        doThrow(new HotelUnavailableException("hotel-service is unavailable"))
+                .when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        // When
+        long started = System.nanoTime();
+        Booking booking = saga.submitBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "req-async-006");
+        for (int i = 0; i < 100 && outboxRepo.countByAttemptsGreaterThanEqual(4) == 0; i++) Thread.sleep(100);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // Then: four attempts 200, 400 and 800 ms apart, after which the event is left to the reconciler
+        assertEquals(1, outboxRepo.countByAttemptsGreaterThanEqual(4));
+        assertTrue(elapsedMs >= 1400, "retried after " + elapsedMs + " ms");
+        Thread.sleep(1000);
+        verify(hotelClient, times(4)).confirm(any(), any(), any(), any(), any());
+        assertEquals("CONFIRMING", bookingRepo.findById(booking.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testResubmitReturnsSameBooking() {
+        Booking first = saga.submitBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "req-async-003");
+        Booking second = saga.submitBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "req-async-003");
+        assertEquals(first.getId(), second.getId());
+    }
+
+    @Test
+    void testCancellationReleasesLockThroughOutbox() throws Exception {
+        // Given a confirmed booking
+        doNothing().when(hotelClient).confirm(any(), any(), any(), any(), any());
+        Booking booking = saga.createBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3), "req-async-004");
+
+        // When
+        saga.cancel(booking);
+
+        // Then: cancelled at once, and the release is queued durably and sent in bulk
+        assertEquals("CANCELLED", bookingRepo.findById(booking.getId()).orElseThrow().getStatus());
+        verify(hotelClient, timeout(5000)).releaseBatch(List.of("req-async-004"));
+        for (int i = 0; i < 50 && outboxRepo.count() > 0; i++) Thread.sleep(100);
+        assertEquals(0, outboxRepo.count());
+        verify(hotelClient, never()).release(any(), any());
+    }
+}
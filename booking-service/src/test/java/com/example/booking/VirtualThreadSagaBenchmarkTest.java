@@ -0,0 +1,93 @@
+package com.example.booking;
+
+import com.example.booking.entity.Booking;
+import com.example.booking.service.HotelClient;
+import com.example.booking.service.SagaOrchestrator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 1k concurrent bookings against a hotel stub that answers in 200 ms, run once on a platform pool
+ * sized like Tomcat's default (200 threads) and once with a virtual thread per booking.
+ * Reports throughput and p99 for both modes; wall-clock figures, so it only runs with -Pbenchmark
+ * and asserts nothing about them.
+ */
+// Every saga books the same room; the local overlap pre-check would short-circuit the hotel call
+@SpringBootTest(properties = "booking.precheck.enabled=false")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@Tag("benchmark")
+class VirtualThreadSagaBenchmarkTest {
+    private static final int BOOKINGS = 1000;
+    private static final long HOTEL_LATENCY_MS = 200;
+
+    @Autowired
+    private SagaOrchestrator saga;
+
+    @MockBean
+    private HotelClient hotelClient;
+
+    @Test
+    void testVirtualThreadsVersusPlatformPool(TestReporter reporter) throws Exception {
+        doAnswer(inv -> {
+            Thread.sleep(HOTEL_LATENCY_MS);
+            return null;
+        }).when(hotelClient).confirm(any(), any(), any(), any(), any());
+
+        Result platform = run("platform", Executors.newFixedThreadPool(200));
+        // Compiled for Java 17, so the Java 21 factory is looked up reflectively
+        Result virtual = run("virtual", (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+
+        reporter.publishEntry(platform.mode(), platform.toString());
+        reporter.publishEntry(virtual.mode(), virtual.toString());
+    }
+
+    private Result run(String mode, ExecutorService executor) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Booking>> results = new ArrayList<>(BOOKINGS);
+        long started = System.nanoTime();
+        for (int i = 0; i < BOOKINGS; i++) {
+            String rid = "req-bench-" + mode + "-" + i;
+            long submitted = System.nanoTime();
+            results.add(executor.submit(() -> {
+                Booking booking = saga.createBooking(1L, 1L, LocalDate.now().plusDays(1), LocalDate.now().plusDays(2), rid);
+                latencies.add(System.nanoTime() - submitted);
+                return booking;
+            }));
+        }
+        for (Future<Booking> result : results) {
+            assertEquals("CONFIRMED", result.get().getStatus());
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+
+        List<Long> sorted = latencies.stream().sorted().toList();
+        long p99Ms = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1) / 1_000_000;
+        return new Result(mode, BOOKINGS / seconds, p99Ms);
+    }
+
+    private record Result(String mode, double throughput, long p99Ms) {
+        @Override
+        public String toString() {
+            return String.format("%-8s %d bookings, %d ms hotel latency: %.0f bookings/s, p99 %d ms",
+                    mode, BOOKINGS, HOTEL_LATENCY_MS, throughput, p99Ms);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.hotel.config;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String HOTELS = "hotels";
+    public static final String HOTEL_LIST = "hotel-list";
+    public static final String ROOMS = "rooms";
+
+    @Value("${hotel.cache.max-size:10000}")
+    private long maxSize;
+    @Value("${hotel.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Evictions are deferred to commit, so a concurrent read cannot re-cache the old row
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager manager = new CaffeineCacheManager(HOTELS, HOTEL_LIST, ROOMS);
+        manager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats());
+        manager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(manager);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.hotel.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset listing ordered by id. {@code nextCursor} is the last id of a full page,
+ * to be passed back as {@code after}; it is null once the listing is exhausted.
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    public static <T> CursorPage<T> of(List<T> items, int limit, Function<T, Long> id) {
+        Long next = items.size() == limit ? id.apply(items.get(items.size() - 1)) : null;
+        return new CursorPage<>(items, next);
+    }
+
+    public static int pageSize(Integer requested, int defaultSize, int maxSize) {
+        int size = requested != null ? requested : defaultSize;
+        if (size < 1 || size > maxSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxSize);
+        }
+        return size;
+    }
+}
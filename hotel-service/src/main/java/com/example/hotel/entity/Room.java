@@ -4,13 +4,15 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity @Table(name="rooms")
-@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder(toBuilder = true)
 public class Room {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private Long hotelId;
     private String number;
     private boolean available;
+    // Written only by TimesBookedCounter's relative updates, never by entity saves
+    @Column(updatable = false)
     private long timesBooked;
     private Instant createdAt;
 }
\ No newline at end of file
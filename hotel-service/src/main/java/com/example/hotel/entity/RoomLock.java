@@ -7,7 +7,9 @@ import java.time.Instant;
 @Entity @Table(name="room_locks")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class RoomLock {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_locks_seq")
+    @SequenceGenerator(name = "room_locks_seq", sequenceName = "room_locks_seq", allocationSize = 50)
     private Long id;
     private Long roomId;
     private LocalDate startDate;
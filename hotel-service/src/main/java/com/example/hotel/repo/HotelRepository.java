@@ -1,6 +1,19 @@
 package com.example.hotel.repo;
 import com.example.hotel.entity.Hotel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface HotelRepository extends JpaRepository<Hotel, Long> {
+    @Query("select h from Hotel h where h.id > :after order by h.id")
+    List<Hotel> findPageAfter(@Param("after") long after, Pageable pageable);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select h from Hotel h order by h.id")
+    Stream<Hotel> streamAll();
 }
@@ -1,9 +1,13 @@
 package com.example.hotel.repo;
 import com.example.hotel.entity.RoomLock;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,29 @@ public interface RoomLockRepository extends JpaRepository<RoomLock, Long> {
     List<RoomLock> findOverlaps(@Param("roomId") Long roomId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     Optional<RoomLock> findByRequestId(String requestId);
     void deleteByRequestId(String requestId);
-}
\ No newline at end of file
+    List<RoomLock> findByBookingUidIn(Collection<String> bookingUids);
+    @Modifying
+    @Query("delete from RoomLock l where l.requestId in :requestIds")
+    int deleteByRequestIdIn(@Param("requestIds") Collection<String> requestIds);
+
+    @Query("select distinct l.roomId from RoomLock l where l.roomId in :roomIds and l.startDate <= :endDate and l.endDate >= :startDate")
+    List<Long> findRoomIdsWithOverlaps(@Param("roomIds") Collection<Long> roomIds, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("select count(l) from RoomLock l where l.roomId = :roomId and l.expiresAt > :now")
+    long countActive(@Param("roomId") Long roomId, @Param("now") Instant now);
+
+    @Query("select l.roomId as roomId, count(l) as locks from RoomLock l " +
+            "where l.roomId in :roomIds and l.expiresAt > :now group by l.roomId")
+    List<RoomLockCount> countActiveByRoom(@Param("roomIds") Collection<Long> roomIds, @Param("now") Instant now);
+
+    @Query("select l from RoomLock l where l.expiresAt <= :now order by l.expiresAt")
+    List<RoomLock> findExpired(@Param("now") Instant now, Pageable page);
+
+    @Query("select count(l) from RoomLock l where l.expiresAt <= :now")
+    long countExpired(@Param("now") Instant now);
+
+    interface RoomLockCount {
+        Long getRoomId();
+        long getLocks();
+    }
+}
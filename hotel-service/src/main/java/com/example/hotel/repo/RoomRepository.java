@@ -1,10 +1,26 @@
 package com.example.hotel.repo;
 import com.example.hotel.entity.Room;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
     @Query("select r from Room r where r.available = true")
     List<Room> findAllAvailable();
-}
\ No newline at end of file
+    List<Room> findByHotelId(Long hotelId);
+    @Query("select r.id from Room r where r.hotelId = :hotelId")
+    List<Long> findIdsByHotelId(@Param("hotelId") Long hotelId);
+    @Query("select r from Room r where r.available = true and r.hotelId = :hotelId")
+    List<Room> findAvailableByHotelId(@Param("hotelId") Long hotelId);
+    @Query("select r from Room r where r.available = true and r.id > :after order by r.id")
+    List<Room> findAvailablePageAfter(@Param("after") long after, Pageable pageable);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select r from Room r where r.available = true order by r.id")
+    Stream<Room> streamAllAvailable();
+}
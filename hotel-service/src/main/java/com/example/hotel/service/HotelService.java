@@ -1,27 +1,64 @@
 package com.example.hotel.service;
+import com.example.hotel.config.CacheConfig;
+import com.example.hotel.dto.CursorPage;
 import com.example.hotel.entity.Hotel;
 import com.example.hotel.repo.HotelRepository;
+import com.example.hotel.repo.RoomRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class HotelService {
     private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final RoomRanking ranking;
+    private final RoomLockIndex lockIndex;
+    private final EntityManager entityManager;
+    @Value("${hotel.listing.default-page-size:100}") int defaultPageSize;
+    @Value("${hotel.listing.max-page-size:1000}") int maxPageSize;
 
-    public List<Hotel> listAll() {
-        return hotelRepository.findAll();
+    // Keyset page: hotels with id greater than the cursor, in id order
+    @Cacheable(cacheNames = CacheConfig.HOTEL_LIST, key = "#after + ':' + #limit")
+    public CursorPage<Hotel> listPage(Long after, Integer limit) {
+        int size = CursorPage.pageSize(limit, defaultPageSize, maxPageSize);
+        return CursorPage.of(hotelRepository.findPageAfter(after != null ? after : 0L, PageRequest.of(0, size)), size, Hotel::getId);
     }
 
+    // Every hotel in id order, handed to the sink row by row and detached once written
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Hotel> sink) {
+        try (Stream<Hotel> hotels = hotelRepository.streamAll()) {
+            hotels.forEach(hotel -> {
+                sink.accept(hotel);
+                entityManager.detach(hotel);
+            });
+        }
+    }
+
+    @Cacheable(cacheNames = CacheConfig.HOTELS, key = "#id")
     public Hotel getById(Long id) {
+        return load(id);
+    }
+
+    private Hotel load(Long id) {
         return hotelRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Hotel not found with id: " + id));
     }
 
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.HOTEL_LIST, allEntries = true)
     public Hotel create(String name, String address) {
         Hotel hotel = Hotel.builder()
                 .name(name)
@@ -32,18 +69,29 @@ public class HotelService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.HOTELS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.HOTEL_LIST, allEntries = true)})
     public Hotel update(Long id, String name, String address) {
-        Hotel hotel = getById(id);
+        Hotel hotel = load(id);
         if (name != null) hotel.setName(name);
         if (address != null) hotel.setAddress(address);
         return hotelRepository.save(hotel);
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.HOTELS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.HOTEL_LIST, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.ROOMS, allEntries = true)})
     public void delete(Long id) {
         if (!hotelRepository.existsById(id)) {
             throw new IllegalArgumentException("Hotel not found with id: " + id);
         }
+        // Rooms and their locks go with the hotel through ON DELETE CASCADE, so the index is told here
+        List<Long> roomIds = roomRepository.findIdsByHotelId(id);
         hotelRepository.deleteById(id);
+        ranking.removeHotelOnCommit(id);
+        roomIds.forEach(lockIndex::removeRoomOnCommit);
     }
 }
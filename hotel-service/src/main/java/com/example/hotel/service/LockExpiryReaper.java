@@ -0,0 +1,116 @@
+package com.example.hotel.service;
+import com.example.hotel.entity.RoomLock;
+import com.example.hotel.repo.RoomLockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes expired room locks. Every confirm schedules a purge for its expiry second on a delay
+ * queue, so near-term expiries are handled within a second without polling; a slow periodic sweep
+ * catches locks written before startup or by other instances. Each run deletes in bounded batches
+ * walking {@code idx_room_locks_expires_at}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LockExpiryReaper {
+    private final RoomLockRepository lockRepository;
+    private final RoomLockIndex lockIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    @Value("${hotel.lock-reaper.enabled:true}") boolean enabled;
+    @Value("${hotel.lock-reaper.batch-size:500}") int batchSize;
+    @Value("${hotel.lock-reaper.max-batches-per-run:20}") int maxBatchesPerRun;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lock-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Set<Long> scheduledSeconds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong backlog = new AtomicLong();
+    private Timer batchTimer;
+    private Counter purged;
+
+    @PostConstruct
+    void registerMetrics() {
+        batchTimer = meterRegistry.timer("hotel.lock_reaper.batch");
+        purged = meterRegistry.counter("hotel.lock_reaper.purged");
+        meterRegistry.gauge("hotel.lock_reaper.backlog", backlog);
+        meterRegistry.gauge("hotel.lock_reaper.scheduled", scheduledSeconds, Set::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** Schedules a purge for the second in which {@code expiresAt} falls; one task per second. */
+    public void scheduleAt(Instant expiresAt) {
+        if (!enabled || expiresAt == null) return;
+        long second = expiresAt.getEpochSecond() + 1;
+        if (!scheduledSeconds.add(second)) return;
+        long delayMs = Math.max(0, second * 1000 - System.currentTimeMillis());
+        scheduler.schedule(() -> {
+            scheduledSeconds.remove(second);
+            purgeQuietly();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Scheduled(initialDelayString = "${hotel.lock-reaper.sweep-interval-ms:60000}",
+            fixedDelayString = "${hotel.lock-reaper.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (enabled) scheduler.execute(this::purgeQuietly);
+    }
+
+    /** Deletes up to {@code maxBatchesPerRun} batches of expired locks and returns the rows purged. */
+    public int purgeExpired() {
+        Instant now = Instant.now();
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int deleted = batchTimer.record(() -> purgeBatch(now));
+            total += deleted;
+            if (deleted < batchSize) break;
+        }
+        purged.increment(total);
+        backlog.set(lockRepository.countExpired(now));
+        return total;
+    }
+
+    private int purgeBatch(Instant now) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<RoomLock> expired = lockRepository.findExpired(now, PageRequest.of(0, batchSize));
+            if (expired.isEmpty()) return 0;
+            lockRepository.deleteAllByIdInBatch(expired.stream().map(RoomLock::getId).toList());
+            expired.forEach(lock -> lockIndex.removeOnCommit(lock.getRequestId()));
+            return expired.size();
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private void purgeQuietly() {
+        try {
+            purgeExpired();
+        } catch (Exception ex) {
+            log.warn("Lock expiry purge failed: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.hotel.service;
+
+/** The room's confirm lock could not be taken in time; the request may succeed when retried. */
+public class RoomBusyException extends RuntimeException {
+    public RoomBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.hotel.service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One fair lock per room, taken before the confirm transaction starts. Confirms for different
+ * rooms never share a lock, and waiters for the same room are served in arrival order without
+ * holding a database connection. A wait that runs out fails with {@link RoomBusyException}, which
+ * says nothing about the dates being taken.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomConfirmLocks {
+    private final MeterRegistry meterRegistry;
+    @Value("${hotel.confirm.lock-timeout-ms:2000}") long lockTimeoutMs;
+
+    private final Map<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private Timer waitTimer;
+    private Counter contended;
+    private Counter timeouts;
+
+    @PostConstruct
+    void registerMetrics() {
+        waitTimer = meterRegistry.timer("hotel.confirm.lock.wait");
+        contended = meterRegistry.counter("hotel.confirm.lock.contended");
+        timeouts = meterRegistry.counter("hotel.confirm.lock.timeouts");
+        meterRegistry.gauge("hotel.confirm.lock.waiting", this, l -> l.locks.values().stream()
+                .mapToInt(ReentrantLock::getQueueLength).sum());
+    }
+
+    public <T> T withRoom(Long roomId, Supplier<T> action) {
+        ReentrantLock lock = acquire(roomId);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Takes the locks of several rooms in ascending id order, so overlapping batches cannot deadlock. */
+    public <T> T withRooms(Collection<Long> roomIds, Supplier<T> action) {
+        Deque<ReentrantLock> held = new ArrayDeque<>();
+        try {
+            roomIds.stream().distinct().sorted().forEach(roomId -> held.push(acquire(roomId)));
+            return action.get();
+        } finally {
+            while (!held.isEmpty()) held.pop().unlock();
+        }
+    }
+
+    private ReentrantLock acquire(Long roomId) {
+        ReentrantLock lock = locks.computeIfAbsent(roomId, id -> new ReentrantLock(true));
+        if (!lock.tryLock()) {
+            contended.increment();
+            long started = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RoomBusyException("Interrupted while waiting for room " + roomId);
+            } finally {
+                waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                timeouts.increment();
+                throw new RoomBusyException("Room " + roomId + " is busy, please retry");
+            }
+        }
+        return lock;
+    }
+}
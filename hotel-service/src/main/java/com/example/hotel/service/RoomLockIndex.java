@@ -0,0 +1,334 @@
+package com.example.hotel.service;
+import com.example.hotel.entity.RoomLock;
+import com.example.hotel.repo.RoomLockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory per-room calendar of room locks, mirrored from {@code room_locks}.
+ * Locks of one room never overlap, so each room keeps its locks in a tree keyed by start date
+ * and an overlap check is a single floor lookup. Rooms whose rows do overlap (written before the
+ * index existed) are answered with {@link Verdict#UNKNOWN} so callers fall back to SQL.
+ * Each calendar also counts its unexpired locks, so occupancy stats never touch the table, and
+ * keeps a day bitmap (one bit per day from the index base day) that answers date-range searches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomLockIndex {
+    private final RoomLockRepository lockRepository;
+    private final MeterRegistry meterRegistry;
+    @Value("${hotel.lock-index.enabled:true}") boolean enabled;
+
+    // Held shared by mutations and exclusively by verify, only to start a rebuild and to swap its result in
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuilding = new ReentrantLock();
+    private volatile State state = new State(LocalDate.now().toEpochDay());
+    // Mutations applied while a rebuild reads the table, replayed onto its result; null when none runs
+    private volatile Queue<Consumer<State>> journal;
+    private volatile boolean ready;
+
+    private Counter indexLookups;
+    private Counter sqlLookups;
+    private Counter drift;
+
+    public enum Verdict { FREE, CONFLICT, UNKNOWN }
+
+    record Span(Long roomId, String requestId, LocalDate start, LocalDate end, Instant expiresAt) {
+        static Span of(RoomLock lock) {
+            return new Span(lock.getRoomId(), lock.getRequestId(), lock.getStartDate(), lock.getEndDate(),
+                    lock.getExpiresAt());
+        }
+
+        // expires_at may lose precision on the way through the database, so it is not part of identity
+        boolean sameLock(Span other) {
+            return other != null && roomId.equals(other.roomId) && requestId.equals(other.requestId)
+                    && start.equals(other.start) && end.equals(other.end);
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        indexLookups = meterRegistry.counter("hotel.lock_index.lookups", "path", "index");
+        sqlLookups = meterRegistry.counter("hotel.lock_index.lookups", "path", "sql");
+        drift = meterRegistry.counter("hotel.lock_index.drift");
+        meterRegistry.gauge("hotel.lock_index.size", this, idx -> idx.state.byRequest.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (enabled) rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${hotel.lock-index.verify-interval-ms:300000}",
+            fixedDelayString = "${hotel.lock-index.verify-interval-ms:300000}")
+    public void scheduledVerify() {
+        if (enabled && ready && verify()) {
+            log.warn("Room lock index drifted from room_locks and was rebuilt");
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public Verdict check(Long roomId, LocalDate start, LocalDate end) {
+        State current = state;
+        if (!isReady() || current.fallbackRooms.contains(roomId)) {
+            sqlLookups.increment();
+            return Verdict.UNKNOWN;
+        }
+        indexLookups.increment();
+        RoomCalendar calendar = current.calendars.get(roomId);
+        return calendar != null && calendar.overlaps(start, end) ? Verdict.CONFLICT : Verdict.FREE;
+    }
+
+    /** Unexpired locks of the room, or empty when the index cannot answer for it. */
+    public OptionalLong activeLocks(Long roomId, Instant now) {
+        State current = state;
+        if (!isReady() || current.fallbackRooms.contains(roomId)) return OptionalLong.empty();
+        RoomCalendar calendar = current.calendars.get(roomId);
+        return OptionalLong.of(calendar == null ? 0 : calendar.activeLocks(now));
+    }
+
+    /** Availability of many rooms for one range, read from the day bitmaps of one index state. */
+    public Map<Long, Verdict> checkAll(Collection<Long> roomIds, LocalDate start, LocalDate end) {
+        Map<Long, Verdict> verdicts = new HashMap<>(roomIds.size() * 2);
+        State current = state;
+        boolean answerable = isReady();
+        for (Long roomId : roomIds) {
+            if (!answerable || current.fallbackRooms.contains(roomId)) {
+                verdicts.put(roomId, Verdict.UNKNOWN);
+                continue;
+            }
+            RoomCalendar calendar = current.calendars.get(roomId);
+            verdicts.put(roomId, calendar != null && !calendar.isFree(start, end) ? Verdict.CONFLICT : Verdict.FREE);
+        }
+        return verdicts;
+    }
+
+    public boolean containsRequest(String requestId) {
+        return state.byRequest.containsKey(requestId);
+    }
+
+    /** Applies the lock once the surrounding transaction commits, or immediately outside of one. */
+    public void addOnCommit(RoomLock lock) {
+        Span span = Span.of(lock);
+        TransactionHooks.afterCommit(() -> mutate(index -> index.add(span)));
+    }
+
+    public void removeOnCommit(String requestId) {
+        TransactionHooks.afterCommit(() -> mutate(index -> index.remove(requestId)));
+    }
+
+    /** Forgets every lock of a deleted room once the delete (and its cascade) commits. */
+    public void removeRoomOnCommit(Long roomId) {
+        TransactionHooks.afterCommit(() -> mutate(index -> index.removeRoom(roomId)));
+    }
+
+    /**
+     * Reloads the index from {@code room_locks} and reports whether the previous state differed
+     * from the table. The table is read without blocking lookups or mutations; mutations made
+     * meanwhile are journaled and replayed onto the fresh state before it is swapped in, so nothing
+     * committed during the reload is lost.
+     */
+    public boolean verify() {
+        rebuilding.lock();
+        try {
+            rebuildLock.writeLock().lock();
+            try {
+                journal = new ConcurrentLinkedQueue<>();
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+            State fresh = new State(LocalDate.now().toEpochDay());
+            for (RoomLock lock : lockRepository.findAll()) fresh.add(Span.of(lock));
+            rebuildLock.writeLock().lock();
+            try {
+                journal.forEach(mutation -> mutation.accept(fresh));
+                boolean drifted = ready && !sameLocks(fresh.byRequest, state.byRequest);
+                if (drifted) drift.increment();
+                state = fresh;
+                ready = true;
+                if (!fresh.fallbackRooms.isEmpty()) {
+                    log.warn("Rooms {} have overlapping locks in room_locks, conflict checks use SQL", fresh.fallbackRooms);
+                }
+                return drifted;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+        } finally {
+            journal = null;
+            rebuilding.unlock();
+        }
+    }
+
+    public void rebuild() {
+        verify();
+    }
+
+    // A mutation that started before a rebuild's read is in the table it reads; later ones are journaled
+    private void mutate(Consumer<State> mutation) {
+        rebuildLock.readLock().lock();
+        try {
+            Queue<Consumer<State>> building = journal;
+            if (building != null) building.add(mutation);
+            mutation.accept(state);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static boolean sameLocks(Map<String, Span> a, Map<String, Span> b) {
+        return a.size() == b.size() && a.values().stream().allMatch(span -> span.sameLock(b.get(span.requestId())));
+    }
+
+    // One generation of the index; verify builds a new one and swaps it in whole
+    private static final class State {
+        final Map<Long, RoomCalendar> calendars = new ConcurrentHashMap<>();
+        final Map<String, Span> byRequest = new ConcurrentHashMap<>();
+        final Set<Long> fallbackRooms = ConcurrentHashMap.newKeySet();
+        final long baseDay;
+
+        State(long baseDay) {
+            this.baseDay = baseDay;
+        }
+
+        void add(Span span) {
+            if (byRequest.putIfAbsent(span.requestId(), span) != null) return;
+            if (fallbackRooms.contains(span.roomId())) return;
+            RoomCalendar calendar = calendars.computeIfAbsent(span.roomId(), id -> new RoomCalendar(baseDay));
+            if (!calendar.add(span)) {
+                calendars.remove(span.roomId());
+                fallbackRooms.add(span.roomId());
+            }
+        }
+
+        void remove(String requestId) {
+            Span span = byRequest.remove(requestId);
+            if (span == null) return;
+            RoomCalendar calendar = calendars.get(span.roomId());
+            if (calendar != null) calendar.remove(span);
+        }
+
+        void removeRoom(Long roomId) {
+            byRequest.values().removeIf(span -> span.roomId().equals(roomId));
+            calendars.remove(roomId);
+            fallbackRooms.remove(roomId);
+        }
+    }
+
+    // Guarded by a ReentrantLock rather than monitors, so virtual threads never pin their carrier here
+    static final class RoomCalendar {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeMap<LocalDate, Span> byStart = new TreeMap<>();
+        // Multiset of pending expiries; expired entries are dropped lazily when the count is read
+        private final TreeMap<Instant, Integer> expiries = new TreeMap<>();
+        private long active;
+        // Bit i is set when day (baseDay + i) is covered by a lock; days outside the horizon use the tree
+        private static final int HORIZON_DAYS = 3660;
+        private final BitSet occupied = new BitSet();
+        private final long baseDay;
+
+        RoomCalendar(long baseDay) {
+            this.baseDay = baseDay;
+        }
+
+        boolean overlaps(LocalDate start, LocalDate end) {
+            lock.lock();
+            try {
+                // Spans never overlap, so only the last span starting on or before `end` can reach `start`
+                Map.Entry<LocalDate, Span> candidate = byStart.floorEntry(end);
+                return candidate != null && !candidate.getValue().end().isBefore(start);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean add(Span span) {
+            lock.lock();
+            try {
+                if (overlaps(span.start(), span.end())) return false;
+                byStart.put(span.start(), span);
+                markDays(span, true);
+                if (span.expiresAt() != null) {
+                    expiries.merge(span.expiresAt(), 1, Integer::sum);
+                    active++;
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(Span span) {
+            lock.lock();
+            try {
+                if (!byStart.remove(span.start(), span)) return;
+                markDays(span, false);
+                if (span.expiresAt() == null) return;
+                Integer pending = expiries.get(span.expiresAt());
+                if (pending == null) return; // already counted as expired
+                if (pending == 1) expiries.remove(span.expiresAt());
+                else expiries.put(span.expiresAt(), pending - 1);
+                active--;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isFree(LocalDate start, LocalDate end) {
+            long from = start.toEpochDay() - baseDay;
+            long to = end.toEpochDay() - baseDay;
+            if (from < 0 || to >= HORIZON_DAYS) return !overlaps(start, end);
+            lock.lock();
+            try {
+                int next = occupied.nextSetBit((int) from);
+                return next < 0 || next > to;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void markDays(Span span, boolean value) {
+            long from = Math.max(0, span.start().toEpochDay() - baseDay);
+            long to = Math.min(span.end().toEpochDay() - baseDay, HORIZON_DAYS - 1);
+            if (to >= from) occupied.set((int) from, (int) to + 1, value);
+        }
+
+        long activeLocks(Instant now) {
+            lock.lock();
+            try {
+                Map<Instant, Integer> expired = expiries.headMap(now, true);
+                for (int count : expired.values()) active -= count;
+                expired.clear();
+                return active;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.hotel.service;
+import com.example.hotel.entity.Room;
+import com.example.hotel.repo.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Live fair-selection order of available rooms, keyed by {@code (timesBooked, id)} in skip lists
+ * (one for the whole catalogue, one per hotel). Recommendations read the first K entries instead
+ * of sorting every room on each request.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomRanking {
+    private final RoomRepository roomRepository;
+
+    private final ConcurrentSkipListMap<RankKey, Room> all = new ConcurrentSkipListMap<>();
+    private final Map<Long, ConcurrentSkipListMap<RankKey, Room>> byHotel = new ConcurrentHashMap<>();
+    private final Map<Long, Room> current = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    record RankKey(long timesBooked, long roomId) implements Comparable<RankKey> {
+        static RankKey of(Room room) {
+            return new RankKey(room.getTimesBooked(), room.getId());
+        }
+
+        @Override
+        public int compareTo(RankKey other) {
+            int byUsage = Long.compare(timesBooked, other.timesBooked);
+            return byUsage != 0 ? byUsage : Long.compare(roomId, other.roomId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        roomRepository.findAllAvailable().forEach(this::upsert);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** The first {@code limit} available rooms in fair order, optionally restricted to one hotel. */
+    public List<Room> top(int limit, Long hotelId) {
+        return after(null, limit, hotelId);
+    }
+
+    /**
+     * Keyset page: the next {@code limit} rooms ranked after {@code last}, or the first ones when it
+     * is null. Rooms re-ranked between pages may be seen twice or not at all.
+     */
+    public List<Room> after(Room last, int limit, Long hotelId) {
+        ConcurrentSkipListMap<RankKey, Room> ranked = hotelId == null
+                ? all
+                : byHotel.getOrDefault(hotelId, new ConcurrentSkipListMap<>());
+        Collection<Room> ordered = last == null ? ranked.values() : ranked.tailMap(RankKey.of(last), false).values();
+        List<Room> result = new ArrayList<>(Math.min(limit, 64));
+        for (Room room : ordered) {
+            if (result.size() >= limit) break;
+            result.add(room);
+        }
+        return result;
+    }
+
+    public void upsertOnCommit(Room room) {
+        Room snapshot = room.toBuilder().build();
+        TransactionHooks.afterCommit(() -> upsert(snapshot));
+    }
+
+    /** Moves the room one place along its usage, without waiting for the counter flush. */
+    public void incrementOnCommit(Long roomId) {
+        TransactionHooks.afterCommit(() -> current.computeIfPresent(roomId, (id, previous) -> {
+            unlink(previous);
+            Room bumped = previous.toBuilder().timesBooked(previous.getTimesBooked() + 1).build();
+            link(bumped);
+            return bumped;
+        }));
+    }
+
+    public void removeOnCommit(Long roomId) {
+        TransactionHooks.afterCommit(() -> remove(roomId));
+    }
+
+    public void removeHotelOnCommit(Long hotelId) {
+        TransactionHooks.afterCommit(() -> current.values().stream()
+                .filter(room -> room.getHotelId().equals(hotelId))
+                .map(Room::getId)
+                .toList()
+                .forEach(this::remove));
+    }
+
+    private void upsert(Room snapshot) {
+        current.compute(snapshot.getId(), (id, previous) -> {
+            if (previous != null) unlink(previous);
+            if (!snapshot.isAvailable()) return null;
+            link(snapshot);
+            return snapshot;
+        });
+    }
+
+    private void link(Room room) {
+        RankKey key = RankKey.of(room);
+        all.put(key, room);
+        byHotel.computeIfAbsent(room.getHotelId(), h -> new ConcurrentSkipListMap<>()).put(key, room);
+    }
+
+    private void remove(Long roomId) {
+        current.computeIfPresent(roomId, (id, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    private void unlink(Room room) {
+        RankKey key = RankKey.of(room);
+        all.remove(key);
+        ConcurrentSkipListMap<RankKey, Room> hotelRooms = byHotel.get(room.getHotelId());
+        if (hotelRooms != null) hotelRooms.remove(key);
+    }
+}
@@ -1,39 +1,132 @@
 package com.example.hotel.service;
+import com.example.hotel.config.CacheConfig;
+import com.example.hotel.dto.CursorPage;
 import com.example.hotel.entity.Room;
 import com.example.hotel.entity.RoomLock;
+import com.example.hotel.repo.HotelRepository;
 import com.example.hotel.repo.RoomLockRepository;
 import com.example.hotel.repo.RoomRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class RoomService {
     private final RoomRepository roomRepository;
+    private final HotelRepository hotelRepository;
     private final RoomLockRepository lockRepository;
+    private final RoomLockIndex lockIndex;
+    private final RoomConfirmLocks confirmLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final LockExpiryReaper expiryReaper;
+    private final RoomRanking ranking;
+    private final TimesBookedCounter timesBooked;
+    private final CacheManager cacheManager;
+    private final EntityManager entityManager;
+    @Value("${hotel.locks.ttl-seconds:3600}") long lockTtlSeconds;
+    @Value("${hotel.confirm.max-batch-size:100}") int maxBatchSize;
+    @Value("${hotel.listing.default-page-size:100}") int defaultPageSize;
+    @Value("${hotel.listing.max-page-size:1000}") int maxPageSize;
+    @Value("${hotel.reserve-any.max-attempts:20}") int maxReserveAttempts;
+    private static final int RESERVE_CHUNK = 64;
 
-    public List<Room> listAvailable() { 
-        return roomRepository.findAllAvailable(); 
+    // Keyset page of available rooms: ids greater than the cursor, in id order
+    public CursorPage<Room> listAvailablePage(Long after, Integer limit) {
+        int size = CursorPage.pageSize(limit, defaultPageSize, maxPageSize);
+        List<Room> rooms = roomRepository.findAvailablePageAfter(after != null ? after : 0L, PageRequest.of(0, size));
+        return CursorPage.of(rooms.stream().map(this::withPendingBookings).toList(), size, Room::getId);
+    }
+
+    // Every available room in id order, handed to the sink row by row and detached once written
+    @Transactional(readOnly = true)
+    public void streamAvailable(Consumer<Room> sink) {
+        try (Stream<Room> rooms = roomRepository.streamAllAvailable()) {
+            rooms.forEach(room -> {
+                sink.accept(withPendingBookings(room));
+                entityManager.detach(room);
+            });
+        }
     }
 
     public List<Room> recommend() {
+        return recommend(Integer.MAX_VALUE, null);
+    }
+
+    public List<Room> recommend(int limit, Long hotelId) {
         // Fair room selection: sort by times_booked ASC, then by id ASC for tie-breaking
         // This ensures rooms are used evenly and prevents idle rooms
-        return roomRepository.findAllAvailable().stream()
+        if (ranking.isReady()) return ranking.top(limit, hotelId);
+        List<Room> rooms = hotelId != null ? roomRepository.findAvailableByHotelId(hotelId) : roomRepository.findAllAvailable();
+        return rooms.stream()
+                .map(this::withPendingBookings)
                 .sorted(Comparator.comparingLong(Room::getTimesBooked).thenComparing(Room::getId))
+                .limit(limit)
                 .toList();
     }
 
+    // Rooms free for the whole range, decided from the per-room day bitmaps in one pass
+    public List<Room> searchAvailable(LocalDate start, LocalDate end, Long hotelId) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        List<Room> rooms = hotelId != null ? roomRepository.findAvailableByHotelId(hotelId) : roomRepository.findAllAvailable();
+        Map<Long, RoomLockIndex.Verdict> verdicts = lockIndex.checkAll(rooms.stream().map(Room::getId).toList(), start, end);
+        List<Long> unknown = verdicts.entrySet().stream()
+                .filter(e -> e.getValue() == RoomLockIndex.Verdict.UNKNOWN)
+                .map(Map.Entry::getKey)
+                .toList();
+        Set<Long> taken = unknown.isEmpty() ? Set.of() : new HashSet<>(lockRepository.findRoomIdsWithOverlaps(unknown, start, end));
+        return rooms.stream()
+                .filter(r -> verdicts.get(r.getId()) == RoomLockIndex.Verdict.FREE
+                        || (verdicts.get(r.getId()) == RoomLockIndex.Verdict.UNKNOWN && !taken.contains(r.getId())))
+                .sorted(Comparator.comparing(Room::getId))
+                .toList();
+    }
+
+    // The cached row is overlaid with unflushed bookings, so the cache is read programmatically
     public Room getById(Long id) {
+        Room cached;
+        try {
+            cached = cacheManager.getCache(CacheConfig.ROOMS).get(id, () -> load(id));
+        } catch (Cache.ValueRetrievalException ex) {
+            // The cache wraps what the loader threw; callers expect the not-found error itself
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+        return withPendingBookings(cached);
+    }
+
+    private Room load(Long id) {
         return roomRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Room not found with id: " + id));
     }
 
+    // times_booked as seen by readers: the persisted value plus increments not yet flushed
+    private Room withPendingBookings(Room room) {
+        long pending = timesBooked.pending(room.getId());
+        return pending == 0 ? room : room.toBuilder().timesBooked(room.getTimesBooked() + pending).build();
+    }
+
     @Transactional
     public Room create(Long hotelId, String number) {
         Room room = Room.builder()
@@ -43,14 +136,19 @@ public class RoomService {
                 .timesBooked(0)
                 .createdAt(Instant.now())
                 .build();
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        ranking.upsertOnCommit(saved);
+        return saved;
     }
 
     @Transactional
     public Room update(Long id, Boolean available) {
-        Room room = getById(id);
+        Room room = load(id);
         if (available != null) room.setAvailable(available);
-        return roomRepository.save(room);
+        Room saved = withPendingBookings(roomRepository.save(room));
+        ranking.upsertOnCommit(saved);
+        cacheManager.getCache(CacheConfig.ROOMS).evict(id);
+        return saved;
     }
 
     @Transactional
@@ -59,48 +157,206 @@ public class RoomService {
             throw new IllegalArgumentException("Room not found with id: " + id);
         }
         roomRepository.deleteById(id);
+        cacheManager.getCache(CacheConfig.ROOMS).evict(id);
+        ranking.removeOnCommit(id);
+        lockIndex.removeRoomOnCommit(id);
     }
 
-    @Transactional
+    // Same-room confirms are serialized before the transaction opens, so waiting never holds a connection
     public void confirmAvailability(Long roomId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
+        confirmLocks.withRoom(roomId, () -> transactionTemplate.execute(status -> {
+            lockRoom(roomId, start, end, bookingUid, requestId);
+            return null;
+        }));
+    }
+
+    /**
+     * Locks the first room, in recommendation order, that is free for the dates. Rooms the index
+     * already knows to be taken are skipped without a lock attempt, and a room lost to a concurrent
+     * confirm or still busy with one just moves the walk on. If nothing was locked but some room was
+     * only busy, the caller is told to retry rather than that the dates are taken. The ranking is
+     * read a chunk at a time. Repeating a request id returns the room it already holds, also when
+     * a concurrent duplicate locked it during the walk.
+     */
+    public Room reserveAny(Long hotelId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        Optional<RoomLock> held = lockRepository.findByRequestId(requestId);
+        if (held.isPresent()) return getById(held.get().getRoomId());
+
+        int attempts = 0;
+        boolean busy = false;
+        Set<Long> seen = new HashSet<>();
+        List<Room> chunk = rankedAfter(null, hotelId);
+        for (; !chunk.isEmpty(); chunk = rankedAfter(chunk.get(chunk.size() - 1), hotelId)) {
+            Map<Long, RoomLockIndex.Verdict> verdicts = lockIndex.checkAll(chunk.stream().map(Room::getId).toList(), start, end);
+            for (Room room : chunk) {
+                // A room re-ranked by a concurrent booking can show up in a later chunk again
+                if (!seen.add(room.getId())) continue;
+                if (verdicts.get(room.getId()) == RoomLockIndex.Verdict.CONFLICT) continue;
+                if (attempts++ >= maxReserveAttempts) {
+                    if (busy) throw new RoomBusyException("Rooms are busy, please retry");
+                    throw new IllegalStateException("No room could be reserved, please retry");
+                }
+                try {
+                    confirmAvailability(room.getId(), start, end, bookingUid, requestId);
+                    // A duplicate of this request may have locked another room meanwhile, in which case
+                    // the confirm above was a no-op; the lock itself says which room the request holds
+                    Long lockedRoomId = lockRepository.findByRequestId(requestId)
+                            .map(RoomLock::getRoomId)
+                            .orElse(room.getId());
+                    return getById(lockedRoomId);
+                } catch (IllegalStateException taken) {
+                    // Booked since the check; try the next room
+                } catch (RoomBusyException contended) {
+                    busy = true;
+                }
+            }
+        }
+        if (busy) throw new RoomBusyException("Rooms are busy, please retry");
+        throw new IllegalStateException("No room is available for the selected dates");
+    }
+
+    // Next chunk of the fair order after the given room; before the ranking is loaded it is sorted from the table
+    private List<Room> rankedAfter(Room last, Long hotelId) {
+        if (ranking.isReady()) return ranking.after(last, RESERVE_CHUNK, hotelId);
+        Comparator<Room> fairOrder = Comparator.comparingLong(Room::getTimesBooked).thenComparing(Room::getId);
+        return recommend(Integer.MAX_VALUE, hotelId).stream()
+                .filter(room -> last == null || fairOrder.compare(room, last) > 0)
+                .limit(RESERVE_CHUNK)
+                .toList();
+    }
+
+    private void lockRoom(Long roomId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
         // Idempotency: check if this request was already processed
-        if (lockRepository.findByRequestId(requestId).isPresent()) return;
+        if (isProcessed(requestId)) return;
         
         // Check for overlapping locks (conflict detection)
-        List<RoomLock> overlaps = lockRepository.findOverlaps(roomId, start, end);
-        if (!overlaps.isEmpty()) {
+        if (hasConflict(roomId, start, end)) {
             throw new IllegalStateException("Room is not available for the selected dates");
         }
         
         // Create lock
-        RoomLock lock = RoomLock.builder()
+        RoomLock lock = newLock(roomId, start, end, bookingUid, requestId);
+        lockRepository.save(lock);
+        afterLockSaved(lock);
+    }
+
+    // Group bookings: every item is checked and locked in one transaction, or none is
+    public void confirmAvailabilityBatch(List<ConfirmItem> items) {
+        if (items.isEmpty() || items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must contain between 1 and " + maxBatchSize + " items");
+        }
+        Set<Long> roomIds = items.stream().map(ConfirmItem::roomId).collect(Collectors.toSet());
+        confirmLocks.withRooms(roomIds, () -> transactionTemplate.execute(status -> {
+            List<RoomLock> locks = new ArrayList<>(items.size());
+            for (ConfirmItem item : items) {
+                if (isProcessed(item.requestId())) continue;
+                boolean clashesWithBatch = locks.stream().anyMatch(l -> l.getRoomId().equals(item.roomId())
+                        && !l.getStartDate().isAfter(item.endDate()) && !l.getEndDate().isBefore(item.startDate()));
+                if (clashesWithBatch || hasConflict(item.roomId(), item.startDate(), item.endDate())) {
+                    throw new IllegalStateException("Room " + item.roomId() + " is not available for the selected dates");
+                }
+                locks.add(newLock(item.roomId(), item.startDate(), item.endDate(), item.bookingUid(), item.requestId()));
+            }
+            lockRepository.saveAll(locks);
+            locks.forEach(this::afterLockSaved);
+            return null;
+        }));
+    }
+
+    private RoomLock newLock(Long roomId, LocalDate start, LocalDate end, String bookingUid, String requestId) {
+        return RoomLock.builder()
                 .roomId(roomId).startDate(start).endDate(end)
                 .bookingUid(bookingUid).requestId(requestId)
-                .expiresAt(Instant.now().plusSeconds(3600))
+                .expiresAt(Instant.now().plusSeconds(lockTtlSeconds))
                 .build();
-        lockRepository.save(lock);
+    }
+
+    private void afterLockSaved(RoomLock lock) {
+        lockIndex.addOnCommit(lock);
+        expiryReaper.scheduleAt(lock.getExpiresAt());
         
-        // Increment timesBooked counter
-        roomRepository.findById(roomId).ifPresent(r -> { 
-            r.setTimesBooked(r.getTimesBooked() + 1); 
-            roomRepository.save(r);
-        });
+        // Increment timesBooked counter off the hot path; flushed in batches by TimesBookedCounter
+        timesBooked.incrementOnCommit(lock.getRoomId());
+        ranking.incrementOnCommit(lock.getRoomId());
     }
 
     @Transactional
     public void release(String requestId) {
         lockRepository.deleteByRequestId(requestId);
+        lockIndex.removeOnCommit(requestId);
+    }
+
+    // Bulk release for cancellations; one statement for the whole batch, and unknown ids are ignored
+    @Transactional
+    public int releaseBatch(List<String> requestIds) {
+        if (requestIds.isEmpty() || requestIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must contain between 1 and " + maxBatchSize + " request ids");
+        }
+        int released = lockRepository.deleteByRequestIdIn(requestIds);
+        requestIds.forEach(lockIndex::removeOnCommit);
+        return released;
+    }
+
+    // Bulk lookup for booking-service's reconciler: which of these bookings hold a lock here
+    public List<RoomLock> findLocksByBookingUids(List<String> bookingUids) {
+        if (bookingUids.isEmpty() || bookingUids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Lookup must contain between 1 and " + maxBatchSize + " booking uids");
+        }
+        return lockRepository.findByBookingUidIn(bookingUids);
+    }
+
+    private boolean isProcessed(String requestId) {
+        if (lockIndex.isReady()) return lockIndex.containsRequest(requestId);
+        return lockRepository.findByRequestId(requestId).isPresent();
+    }
+
+    // Conflicts are decided by the in-memory index; SQL is only the fallback when it cannot answer
+    private boolean hasConflict(Long roomId, LocalDate start, LocalDate end) {
+        return switch (lockIndex.check(roomId, start, end)) {
+            case FREE -> false;
+            case CONFLICT -> true;
+            case UNKNOWN -> !lockRepository.findOverlaps(roomId, start, end).isEmpty();
+        };
     }
     
-    // Get occupancy statistics for a room
+    // Get occupancy statistics for a room; the indexed count query is the cold path
     public RoomOccupancyStats getOccupancyStats(Long roomId) {
         Room room = getById(roomId);
-        long activeLocks = lockRepository.findAll().stream()
-                .filter(lock -> lock.getRoomId().equals(roomId))
-                .filter(lock -> lock.getExpiresAt().isAfter(Instant.now()))
-                .count();
+        Instant now = Instant.now();
+        OptionalLong cached = lockIndex.activeLocks(roomId, now);
+        long activeLocks = cached.isPresent() ? cached.getAsLong() : lockRepository.countActive(roomId, now);
         return new RoomOccupancyStats(room.getId(), room.getTimesBooked(), activeLocks);
     }
+
+    // Occupancy statistics for every room of a hotel, with at most one grouped count query
+    public List<RoomOccupancyStats> getHotelOccupancyStats(Long hotelId) {
+        if (!hotelRepository.existsById(hotelId)) {
+            throw new IllegalArgumentException("Hotel not found with id: " + hotelId);
+        }
+        List<Room> rooms = roomRepository.findByHotelId(hotelId).stream().map(this::withPendingBookings).toList();
+        Instant now = Instant.now();
+        List<RoomOccupancyStats> stats = new ArrayList<>(rooms.size());
+        List<Room> cold = new ArrayList<>();
+        for (Room room : rooms) {
+            OptionalLong cached = lockIndex.activeLocks(room.getId(), now);
+            if (cached.isPresent()) stats.add(new RoomOccupancyStats(room.getId(), room.getTimesBooked(), cached.getAsLong()));
+            else cold.add(room);
+        }
+        if (!cold.isEmpty()) {
+            Map<Long, Long> counts = lockRepository.countActiveByRoom(cold.stream().map(Room::getId).toList(), now).stream()
+                    .collect(Collectors.toMap(RoomLockRepository.RoomLockCount::getRoomId, RoomLockRepository.RoomLockCount::getLocks));
+            for (Room room : cold) {
+                stats.add(new RoomOccupancyStats(room.getId(), room.getTimesBooked(), counts.getOrDefault(room.getId(), 0L)));
+            }
+        }
+        stats.sort(Comparator.comparing(RoomOccupancyStats::roomId));
+        return stats;
+    }
     
     public record RoomOccupancyStats(Long roomId, long timesBooked, long currentLocks) {}
+
+    public record ConfirmItem(Long roomId, LocalDate startDate, LocalDate endDate, String bookingUid, String requestId) {}
 }
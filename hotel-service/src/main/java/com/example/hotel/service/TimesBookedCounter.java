@@ -0,0 +1,82 @@
+package com.example.hotel.service;
+import com.example.hotel.config.CacheConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accumulates {@code times_booked} increments in per-room adders and writes them out periodically
+ * as one batch of relative updates, so confirms never read-modify-write or row-lock {@code rooms}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TimesBookedCounter {
+    private static final String FLUSH_SQL = "UPDATE rooms SET times_booked = times_booked + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    @Value("${hotel.times-booked.flush-on-shutdown:true}") boolean flushOnShutdown;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // Flushes do JDBC I/O, so they are serialized with a lock that does not pin virtual threads
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void incrementOnCommit(Long roomId) {
+        TransactionHooks.afterCommit(() -> pending.computeIfAbsent(roomId, id -> new LongAdder()).increment());
+    }
+
+    /** Increments recorded in memory but not yet written to {@code rooms}. */
+    public long pending(Long roomId) {
+        LongAdder adder = pending.get(roomId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${hotel.times-booked.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            log.warn("times_booked flush failed, will retry: {}", ex.getMessage());
+        }
+    }
+
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = new ArrayList<>();
+            pending.forEach((roomId, adder) -> {
+                long delta = adder.sum();
+                if (delta != 0) batch.add(new Object[]{delta, roomId});
+            });
+            if (batch.isEmpty()) return 0;
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            // Deltas leave the adders only once written; a failed batch is simply retried next time
+            Cache rooms = cacheManager.getCache(CacheConfig.ROOMS);
+            batch.forEach(row -> {
+                pending.get((Long) row[1]).add(-(Long) row[0]);
+                rooms.evict(row[1]);
+            });
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        if (flushOnShutdown) flush();
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.hotel.web;
 import com.example.hotel.entity.Hotel;
 import com.example.hotel.service.HotelService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 
 @RestController
@@ -15,11 +18,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class HotelController {
     private final HotelService hotelService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
-    public List<Hotel> list() {
-        return hotelService.listAll();
+    public ResponseEntity<List<Hotel>> list(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return Ndjson.page(hotelService.listPage(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return Ndjson.stream(objectMapper, hotelService::streamAll);
     }
 
     @GetMapping("/{id}")
@@ -1,11 +1,18 @@
 package com.example.hotel.web;
+import com.example.hotel.entity.Room;
+import com.example.hotel.entity.RoomLock;
 import com.example.hotel.service.RoomService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/rooms")
@@ -20,6 +27,32 @@ public class InternalRoomController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/reserve-any")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public ResponseEntity<Room> reserveAny(@Valid @RequestBody ReserveAnyRequest req) {
+        return ResponseEntity.ok(roomService.reserveAny(req.hotelId, req.startDate, req.endDate, req.bookingUid, req.requestId));
+    }
+
+    @PostMapping("/confirm-availability:batch")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public ResponseEntity<?> confirmBatch(@Valid @RequestBody BatchConfirmRequest req) {
+        roomService.confirmAvailabilityBatch(req.items);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/release:batch")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public ResponseEntity<?> releaseBatch(@Valid @RequestBody BatchReleaseRequest req) {
+        roomService.releaseBatch(req.requestIds);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/locks:lookup")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public List<RoomLock> lookupLocks(@Valid @RequestBody LockLookupRequest req) {
+        return roomService.findLocksByBookingUids(req.bookingUids);
+    }
+
     @PostMapping("/{id}/release")
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     public ResponseEntity<?> release(@RequestBody ReleaseRequest req) {
@@ -30,5 +63,31 @@ public class InternalRoomController {
     @Data
     static class ConfirmRequest { LocalDate startDate; LocalDate endDate; String bookingUid; String requestId; }
     @Data
+    static class ReserveAnyRequest {
+        Long hotelId;
+        @NotNull(message = "Start date is required")
+        LocalDate startDate;
+        @NotNull(message = "End date is required")
+        LocalDate endDate;
+        String bookingUid;
+        @NotBlank(message = "Request ID is required")
+        String requestId;
+    }
+    @Data
+    static class BatchConfirmRequest {
+        @NotEmpty(message = "At least one item is required")
+        List<RoomService.ConfirmItem> items;
+    }
+    @Data
+    static class LockLookupRequest {
+        @NotEmpty(message = "At least one booking uid is required")
+        List<String> bookingUids;
+    }
+    @Data
     static class ReleaseRequest { String requestId; }
+    @Data
+    static class BatchReleaseRequest {
+        @NotEmpty(message = "At least one request id is required")
+        List<String> requestIds;
+    }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.example.hotel.web;
 import com.example.hotel.entity.Room;
 import com.example.hotel.service.RoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -16,17 +21,46 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RoomController {
     private final RoomService roomService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
-    public List<Room> list() { 
-        return roomService.listAvailable(); 
+    public ResponseEntity<List<Room>> list(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return Ndjson.page(roomService.listAvailablePage(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return Ndjson.stream(objectMapper, roomService::streamAvailable);
     }
 
     @GetMapping("/recommend")
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
-    public List<Room> recommend() { 
-        return roomService.recommend(); 
+    public List<Room> recommend(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long hotelId) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return roomService.recommend(limit != null ? limit : Integer.MAX_VALUE, hotelId);
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public List<Room> search(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(required = false) Long hotelId) {
+        return roomService.searchAvailable(start, end, hotelId);
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    public List<RoomService.RoomOccupancyStats> hotelStats(@RequestParam Long hotelId) {
+        return roomService.getHotelOccupancyStats(hotelId);
     }
 
     @GetMapping("/{id}")
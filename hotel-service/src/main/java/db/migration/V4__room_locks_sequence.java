@@ -0,0 +1,29 @@
+package db.migration;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Pooled id sequence for room_locks, so lock inserts can be JDBC-batched. It starts above the ids
+ * already in the table: Hibernate's pooled optimizer hands out the {@value #ALLOCATION_SIZE} ids
+ * ending at each value it reads, so the first value must be at least MAX(id) + that size.
+ * A Java migration because H2 and PostgreSQL only take a literal start value.
+ */
+public class V4__room_locks_sequence extends BaseJavaMigration {
+    // Must match allocationSize on RoomLock's @SequenceGenerator
+    static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM room_locks")) {
+                rs.next();
+                maxId = rs.getLong(1);
+            }
+            statement.execute("CREATE SEQUENCE room_locks_seq START WITH " + (maxId + ALLOCATION_SIZE)
+                    + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package db.migration;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Moves the hotels and rooms identities past the ids V2 seeded explicitly, which left them at 1 so
+ * the first inserts collided with the seed rows. A Java migration for the same reason as V4: the
+ * restart value has to be a literal.
+ */
+public class V6__restart_seeded_identities extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : new String[] {"hotels", "rooms"}) {
+                long maxId;
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (maxId + 1));
+            }
+        }
+    }
+}
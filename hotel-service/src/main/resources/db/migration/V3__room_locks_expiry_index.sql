@@ -0,0 +1,2 @@
+-- Covers per-room active lock counts (room_id = ? AND expires_at > ?)
+CREATE INDEX idx_room_locks_room_expires ON room_locks(room_id, expires_at);
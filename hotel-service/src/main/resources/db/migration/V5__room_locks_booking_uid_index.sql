@@ -0,0 +1,2 @@
+-- Bulk lookup of locks by booking uid (reconciliation from booking-service)
+CREATE INDEX idx_room_locks_booking_uid ON room_locks(booking_uid);
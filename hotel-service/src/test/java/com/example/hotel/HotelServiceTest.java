@@ -0,0 +1,77 @@
+package com.example.hotel;
+import com.example.hotel.dto.CursorPage;
+import com.example.hotel.entity.Hotel;
+import com.example.hotel.repo.HotelRepository;
+import com.example.hotel.service.HotelService;
+import com.example.hotel.service.RoomLockIndex;
+import com.example.hotel.service.RoomService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HotelServiceTest {
+    @Autowired HotelService hotelService;
+    @Autowired HotelRepository hotelRepository;
+    @Autowired RoomService roomService;
+    @Autowired RoomLockIndex lockIndex;
+
+    @Test void getByIdIsServedFromCacheUntilUpdated() {
+        Hotel created = hotelService.create("Cached", "Street 1");
+        assertEquals("Cached", hotelService.getById(created.getId()).getName());
+
+        // A write behind the service's back is not seen while the entry is cached
+        Hotel changed = hotelRepository.findById(created.getId()).orElseThrow();
+        changed.setName("Bypassed");
+        hotelRepository.save(changed);
+        assertEquals("Cached", hotelService.getById(created.getId()).getName());
+
+        hotelService.update(created.getId(), "Renamed", null);
+        assertEquals("Renamed", hotelService.getById(created.getId()).getName());
+    }
+
+    @Test void listPageWalksHotelsByCursor() {
+        hotelService.create("Paged A", null);
+        hotelService.create("Paged B", null);
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        do {
+            CursorPage<Hotel> page = hotelService.listPage(cursor, 1);
+            page.items().forEach(h -> seen.add(h.getId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        List<Long> streamed = new ArrayList<>();
+        hotelService.streamAll(h -> streamed.add(h.getId()));
+        assertEquals(streamed, seen);
+        assertEquals(seen.stream().sorted().toList(), seen);
+        assertThrows(IllegalArgumentException.class, () -> hotelService.listPage(null, 0));
+    }
+
+    @Test void roomUpdateInvalidatesCachedRoom() {
+        var room = roomService.create(1L, "C-1");
+        assertTrue(roomService.getById(room.getId()).isAvailable());
+        roomService.update(room.getId(), false);
+        assertFalse(roomService.getById(room.getId()).isAvailable());
+        roomService.delete(room.getId());
+        assertThrows(IllegalArgumentException.class, () -> roomService.getById(room.getId()));
+    }
+
+    @Test void hotelDeleteDropsItsRoomsFromLockIndex() {
+        Hotel hotel = hotelService.create("Doomed", null);
+        var room = roomService.create(hotel.getId(), "D-1");
+        LocalDate start = LocalDate.now().plusDays(3);
+        roomService.confirmAvailability(room.getId(), start, start.plusDays(1), "booking-doomed", "req-doomed");
+        assertTrue(lockIndex.containsRequest("req-doomed"));
+
+        hotelService.delete(hotel.getId());
+
+        // The cascade removed the lock row; the index must not keep reporting it
+        assertFalse(lockIndex.containsRequest("req-doomed"));
+        assertFalse(lockIndex.verify());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.hotel;
+
+import com.example.hotel.entity.RoomLock;
+import com.example.hotel.repo.RoomLockRepository;
+import com.example.hotel.service.RoomBusyException;
+import com.example.hotel.service.RoomConfirmLocks;
+import com.example.hotel.service.RoomLockIndex;
+import com.example.hotel.service.RoomService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RoomConfirmConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomLockRepository lockRepository;
+
+    @Autowired
+    private RoomLockIndex lockIndex;
+
+    @Autowired
+    private RoomConfirmLocks confirmLocks;
+
+    @BeforeEach
+    void setUp() {
+        lockRepository.deleteAll();
+        lockIndex.rebuild();
+    }
+
+    @Test
+    void testSameRoomSameDatesHasExactlyOneWinner() throws InterruptedException {
+        // Given
+        Long roomId = 5L;
+        LocalDate start = LocalDate.now().plusDays(10);
+        LocalDate end = LocalDate.now().plusDays(12);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger busy = new AtomicInteger();
+
+        // When - many threads race for the same dates
+        hammer(i -> {
+            try {
+                roomService.confirmAvailability(roomId, start, end, "booking-race-" + i, "req-race-" + i);
+                confirmed.incrementAndGet();
+            } catch (IllegalStateException ex) {
+                conflicts.incrementAndGet();
+            } catch (RoomBusyException ex) {
+                busy.incrementAndGet();
+            }
+        });
+
+        // Then - a lock-wait timeout is not a conflict, but one thread still wins the dates
+        assertEquals(1, confirmed.get());
+        assertEquals(THREADS - 1, conflicts.get() + busy.get());
+        List<RoomLock> locks = lockRepository.findOverlaps(roomId, start, end);
+        assertEquals(1, locks.size());
+    }
+
+    @Test
+    void testSameRoomDisjointDatesAllSucceed() throws InterruptedException {
+        // Given
+        Long roomId = 5L;
+        LocalDate base = LocalDate.now().plusDays(30);
+        AtomicInteger confirmed = new AtomicInteger();
+
+        // When - every thread asks for its own two-day window
+        hammer(i -> {
+            roomService.confirmAvailability(roomId, base.plusDays(i * 3L), base.plusDays(i * 3L + 1),
+                    "booking-disjoint-" + i, "req-disjoint-" + i);
+            confirmed.incrementAndGet();
+        });
+
+        // Then
+        assertEquals(THREADS, confirmed.get());
+        assertFalse(lockIndex.verify());
+    }
+
+    @Test
+    void testLockWaitTimeoutIsBusyNotConflict() throws InterruptedException {
+        // Given - another confirm holds the room's lock longer than the wait allows
+        Long roomId = 5L;
+        LocalDate start = LocalDate.now().plusDays(60);
+        LocalDate end = LocalDate.now().plusDays(61);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> confirmLocks.withRoom(roomId, () -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        // When / Then
+        try {
+            assertThrows(RoomBusyException.class,
+                    () -> roomService.confirmAvailability(roomId, start, end, "booking-busy", "req-busy"));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+        assertTrue(lockRepository.findOverlaps(roomId, start, end).isEmpty());
+
+        // And the dates are still free once the lock is released
+        roomService.confirmAvailability(roomId, start, end, "booking-busy", "req-busy");
+        assertEquals(1, lockRepository.findOverlaps(roomId, start, end).size());
+    }
+
+    private void hammer(IntConsumer task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            int n = i;
+            pool.submit(() -> {
+                try {
+                    startGate.await();
+                    task.accept(n);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        startGate.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+}
@@ -1,20 +1,31 @@
 package com.example.hotel;
 
+import com.example.hotel.dto.CursorPage;
 import com.example.hotel.entity.Room;
 import com.example.hotel.entity.RoomLock;
 import com.example.hotel.repo.RoomLockRepository;
 import com.example.hotel.repo.RoomRepository;
+import com.example.hotel.service.LockExpiryReaper;
+import com.example.hotel.service.RoomLockIndex;
+import com.example.hotel.service.RoomRanking;
 import com.example.hotel.service.RoomService;
+import com.example.hotel.service.TimesBookedCounter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
 
 @SpringBootTest
 class RoomServiceExtendedTest {
@@ -25,12 +36,25 @@ class RoomServiceExtendedTest {
     @Autowired
     private RoomRepository roomRepository;
 
-    @Autowired
+    @SpyBean
     private RoomLockRepository lockRepository;
 
+    @Autowired
+    private RoomLockIndex lockIndex;
+
+    @Autowired
+    private LockExpiryReaper expiryReaper;
+
+    @Autowired
+    private RoomRanking ranking;
+
+    @Autowired
+    private TimesBookedCounter timesBookedCounter;
+
     @BeforeEach
     void setUp() {
         lockRepository.deleteAll();
+        lockIndex.rebuild();
     }
 
     @Test
@@ -58,6 +82,24 @@ class RoomServiceExtendedTest {
         }
     }
 
+    @Test
+    void testRecommendTopKFollowsAvailabilityAndBookings() {
+        // Given - Lake View (hotel 2): room 7 (1), room 6 (4), room 8 (6) by timesBooked
+        assertEquals(List.of(7L, 6L), roomService.recommend(2, 2L).stream().map(Room::getId).toList());
+
+        try {
+            // When - the least used room is switched off
+            roomService.update(7L, false);
+
+            // Then - it leaves the ranking immediately
+            assertEquals(List.of(6L, 8L), roomService.recommend(2, 2L).stream().map(Room::getId).toList());
+            assertTrue(roomService.recommend().stream().noneMatch(r -> r.getId().equals(7L)));
+        } finally {
+            roomService.update(7L, true);
+        }
+        assertEquals(7L, roomService.recommend(1, 2L).get(0).getId());
+    }
+
     @Test
     void testConfirmAvailabilitySuccess() {
         // Given
@@ -67,6 +109,7 @@ class RoomServiceExtendedTest {
         String bookingUid = "booking-001";
         String requestId = "req-001";
 
+        timesBookedCounter.flush();
         Room roomBefore = roomRepository.findById(roomId).orElseThrow();
         long timesBookedBefore = roomBefore.getTimesBooked();
 
@@ -81,7 +124,9 @@ class RoomServiceExtendedTest {
         assertEquals(end, lock.getEndDate());
         assertEquals(bookingUid, lock.getBookingUid());
 
-        // And timesBooked should be incremented
+        // And timesBooked should be incremented - visible to readers at once, persisted on flush
+        assertEquals(timesBookedBefore + 1, roomService.getById(roomId).getTimesBooked());
+        timesBookedCounter.flush();
         Room roomAfter = roomRepository.findById(roomId).orElseThrow();
         assertEquals(timesBookedBefore + 1, roomAfter.getTimesBooked());
     }
@@ -159,6 +204,101 @@ class RoomServiceExtendedTest {
         assertEquals(1, stats.currentLocks());
     }
 
+    @Test
+    void testGetHotelOccupancyStats() {
+        // Given - Lake View (hotel 2) has rooms 6, 7 and 8
+        roomService.confirmAvailability(6L, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(3), "booking-hotel-1", "req-hotel-stats-1");
+        roomService.confirmAvailability(6L, LocalDate.now().plusDays(5),
+                LocalDate.now().plusDays(6), "booking-hotel-2", "req-hotel-stats-2");
+        roomService.confirmAvailability(8L, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(3), "booking-hotel-3", "req-hotel-stats-3");
+        roomService.release("req-hotel-stats-2");
+
+        // When
+        List<RoomService.RoomOccupancyStats> stats = roomService.getHotelOccupancyStats(2L);
+
+        // Then
+        assertEquals(List.of(6L, 7L, 8L), stats.stream().map(RoomService.RoomOccupancyStats::roomId).toList());
+        assertEquals(List.of(1L, 0L, 1L), stats.stream().map(RoomService.RoomOccupancyStats::currentLocks).toList());
+    }
+
+    @Test
+    void testReaperPurgesOnlyExpiredLocks() {
+        // Given - one lock already past its expiry and one still active
+        Long roomId = 4L;
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        lockRepository.save(RoomLock.builder()
+                .roomId(roomId).startDate(start).endDate(end)
+                .bookingUid("booking-expired").requestId("req-expired")
+                .expiresAt(Instant.now().minusSeconds(60))
+                .build());
+        lockIndex.rebuild();
+        roomService.confirmAvailability(roomId, LocalDate.now().plusDays(5),
+                LocalDate.now().plusDays(6), "booking-live", "req-live");
+
+        // When
+        int purged = expiryReaper.purgeExpired();
+
+        // Then - the expired range is bookable again and the live lock is untouched
+        assertEquals(1, purged);
+        assertFalse(lockRepository.findByRequestId("req-expired").isPresent());
+        assertTrue(lockRepository.findByRequestId("req-live").isPresent());
+        assertEquals(RoomLockIndex.Verdict.FREE, lockIndex.check(roomId, start, end));
+        assertFalse(lockIndex.verify());
+    }
+
+    @Test
+    void testSearchAvailableExcludesLockedRooms() {
+        // Given - Grand Hotel (hotel 1) has rooms 1-5; room 1 is locked for the range, room 2 just after it
+        LocalDate start = LocalDate.now().plusDays(10);
+        LocalDate end = LocalDate.now().plusDays(12);
+        roomService.confirmAvailability(1L, start.minusDays(1), start, "booking-search-1", "req-search-1");
+        roomService.confirmAvailability(2L, end.plusDays(1), end.plusDays(2), "booking-search-2", "req-search-2");
+
+        // When
+        List<Room> free = roomService.searchAvailable(start, end, 1L);
+
+        // Then
+        assertEquals(List.of(2L, 3L, 4L, 5L), free.stream().map(Room::getId).toList());
+        assertTrue(roomService.searchAvailable(start, end, null).stream().noneMatch(r -> r.getId().equals(1L)));
+    }
+
+    @Test
+    void testConfirmAvailabilityBatchLocksAllRooms() {
+        // Given
+        LocalDate start = LocalDate.now().plusDays(20);
+        LocalDate end = LocalDate.now().plusDays(22);
+        List<RoomService.ConfirmItem> items = List.of(
+                new RoomService.ConfirmItem(1L, start, end, "group-1", "req-group-1"),
+                new RoomService.ConfirmItem(2L, start, end, "group-1", "req-group-2"),
+                new RoomService.ConfirmItem(3L, start, end, "group-1", "req-group-3"));
+
+        // When
+        roomService.confirmAvailabilityBatch(items);
+
+        // Then
+        assertEquals(3, lockRepository.count());
+        assertEquals(RoomLockIndex.Verdict.CONFLICT, lockIndex.check(2L, start, end));
+    }
+
+    @Test
+    void testConfirmAvailabilityBatchIsAllOrNothing() {
+        // Given - room 3 is already taken for the dates
+        LocalDate start = LocalDate.now().plusDays(20);
+        LocalDate end = LocalDate.now().plusDays(22);
+        roomService.confirmAvailability(3L, start, end, "booking-solo", "req-solo");
+        List<RoomService.ConfirmItem> items = List.of(
+                new RoomService.ConfirmItem(1L, start, end, "group-2", "req-group-4"),
+                new RoomService.ConfirmItem(3L, start, end, "group-2", "req-group-5"));
+
+        // When / Then - the conflict rejects the whole batch
+        assertThrows(IllegalStateException.class, () -> roomService.confirmAvailabilityBatch(items));
+        assertFalse(lockRepository.findByRequestId("req-group-4").isPresent());
+        assertEquals(RoomLockIndex.Verdict.FREE, lockIndex.check(1L, start, end));
+    }
+
     @Test
     void testParallelBookingConflictDetection() throws InterruptedException {
         // This test demonstrates conflict detection, but may be non-deterministic
@@ -178,4 +318,150 @@ class RoomServiceExtendedTest {
             roomService.confirmAvailability(roomId, start, end, "booking-second", "req-second");
         });
     }
+
+    @Test
+    void testLockIndexStaysConsistentWithTable() {
+        // Given
+        Long roomId = 3L;
+        roomService.confirmAvailability(roomId, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(2), "booking-idx-1", "req-idx-1");
+        roomService.confirmAvailability(roomId, LocalDate.now().plusDays(4),
+                LocalDate.now().plusDays(6), "booking-idx-2", "req-idx-2");
+
+        // When
+        roomService.release("req-idx-1");
+
+        // Then - the index mirrors the table, and the released range is free again
+        assertFalse(lockIndex.verify());
+        assertEquals(RoomLockIndex.Verdict.FREE,
+                lockIndex.check(roomId, LocalDate.now().plusDays(1), LocalDate.now().plusDays(2)));
+        assertEquals(RoomLockIndex.Verdict.CONFLICT,
+                lockIndex.check(roomId, LocalDate.now().plusDays(3), LocalDate.now().plusDays(4)));
+    }
+
+    @Test
+    void testLockIndexReloadBlocksNeitherLookupsNorConfirms() throws Exception {
+        // Given - a consistency check that has read the (empty) table and is held before it swaps the result in
+        LocalDate start = LocalDate.now().plusDays(20);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            read.countDown();
+            proceed.await(5, TimeUnit.SECONDS);
+            return List.of();
+        }).when(lockRepository).findAll();
+        CompletableFuture<Boolean> verify = CompletableFuture.supplyAsync(lockIndex::verify);
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+
+        // When - a lock is confirmed and the room looked up meanwhile
+        CompletableFuture.runAsync(() -> roomService.confirmAvailability(4L, start, start.plusDays(1), "booking-reload", "req-reload"))
+                .get(2, TimeUnit.SECONDS);
+        assertEquals(RoomLockIndex.Verdict.CONFLICT, lockIndex.check(4L, start, start.plusDays(1)));
+        proceed.countDown();
+
+        // Then - the reload kept the lock it had not read, so it reports no drift
+        assertFalse(verify.get(5, TimeUnit.SECONDS));
+        assertTrue(lockIndex.containsRequest("req-reload"));
+        assertEquals(RoomLockIndex.Verdict.CONFLICT, lockIndex.check(4L, start, start.plusDays(1)));
+    }
+
+    @Test
+    void testLockIndexRepairsDrift() {
+        // Given - a lock removed behind the service's back
+        Long roomId = 3L;
+        LocalDate start = LocalDate.now().plusDays(1);
+        LocalDate end = LocalDate.now().plusDays(3);
+        roomService.confirmAvailability(roomId, start, end, "booking-drift", "req-drift-1");
+        lockRepository.deleteAll();
+
+        // When / Then - the consistency check reports the drift and the dates become bookable
+        assertTrue(lockIndex.verify());
+        roomService.confirmAvailability(roomId, start, end, "booking-drift", "req-drift-2");
+        assertTrue(lockRepository.findByRequestId("req-drift-2").isPresent());
+    }
+
+    @Test
+    void testAvailableRoomsPagedByCursorMatchStream() {
+        // Given
+        List<Long> streamed = new ArrayList<>();
+        roomService.streamAvailable(room -> streamed.add(room.getId()));
+
+        // When
+        List<Long> paged = new ArrayList<>();
+        Long cursor = null;
+        do {
+            CursorPage<Room> page = roomService.listAvailablePage(cursor, 2);
+            page.items().forEach(room -> paged.add(room.getId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        // Then
+        assertFalse(streamed.isEmpty());
+        assertEquals(streamed, paged);
+        assertEquals(roomRepository.findAllAvailable().size(), paged.size());
+    }
+
+    @Test
+    void testFindLocksByBookingUids() {
+        // Given
+        LocalDate start = LocalDate.now().plusDays(40);
+        roomService.confirmAvailability(1L, start, start.plusDays(1), "booking-lookup-1", "req-lookup-1");
+        roomService.confirmAvailability(2L, start, start.plusDays(1), "booking-lookup-2", "req-lookup-2");
+
+        // When
+        List<RoomLock> locks = roomService.findLocksByBookingUids(List.of("booking-lookup-1", "booking-lookup-missing"));
+
+        // Then
+        assertEquals(1, locks.size());
+        assertEquals("req-lookup-1", locks.get(0).getRequestId());
+        assertThrows(IllegalArgumentException.class, () -> roomService.findLocksByBookingUids(List.of()));
+    }
+
+    @Test
+    void testReleaseBatchFreesRooms() {
+        // Given
+        LocalDate start = LocalDate.now().plusDays(45);
+        roomService.confirmAvailability(1L, start, start.plusDays(1), "booking-release-1", "req-release-1");
+        roomService.confirmAvailability(2L, start, start.plusDays(1), "booking-release-2", "req-release-2");
+
+        // When
+        int released = roomService.releaseBatch(List.of("req-release-1", "req-release-2", "req-release-unknown"));
+
+        // Then
+        assertEquals(2, released);
+        assertEquals(0, lockRepository.count());
+        assertEquals(RoomLockIndex.Verdict.FREE, lockIndex.check(1L, start, start.plusDays(1)));
+    }
+
+    @Test
+    void testReserveAnyTakesFirstFreeRoomInFairOrder() {
+        // Given the first recommended room is already taken for the dates
+        LocalDate start = LocalDate.now().plusDays(50);
+        LocalDate end = start.plusDays(2);
+        List<Room> ordered = roomService.recommend(Integer.MAX_VALUE, 1L);
+        roomService.confirmAvailability(ordered.get(0).getId(), start, end, "booking-any-0", "req-any-0");
+
+        // When
+        Room reserved = roomService.reserveAny(1L, start, end, "booking-any-1", "req-any-1");
+
+        // Then the next room is locked, and repeating the request returns it again
+        assertEquals(ordered.get(1).getId(), reserved.getId());
+        assertEquals(reserved.getId(), lockRepository.findByRequestId("req-any-1").orElseThrow().getRoomId());
+        assertEquals(reserved.getId(), roomService.reserveAny(1L, start, end, "booking-any-1", "req-any-1").getId());
+        assertEquals(2, lockRepository.count());
+    }
+
+    @Test
+    void testRankingPagesWalkTheWholeFairOrder() {
+        // When - the ranking is read two rooms at a time
+        List<Long> paged = new ArrayList<>();
+        List<Room> page = ranking.after(null, 2, null);
+        while (!page.isEmpty()) {
+            page.forEach(r -> paged.add(r.getId()));
+            page = ranking.after(page.get(page.size() - 1), 2, null);
+        }
+
+        // Then - the pages add up to the full recommendation order
+        assertEquals(roomService.recommend().stream().map(Room::getId).toList(), paged);
+    }
 }
@@ -0,0 +1,136 @@
+package com.example.jwtcache;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * What the verified-token cache may answer by itself and what it must hand to the verifier again.
+ * The decode-cost comparison is wall-clock, so it only runs with -Pbenchmark.
+ */
+class CachingJwtDecoderTest {
+    private static final String SECRET = "benchmark-secret-benchmark-secret-32b";
+    private static final int TOKENS = 100;
+    private static final int ROUNDS = 200;
+
+    @Test
+    void testCachedTokenSkipsTheVerifier() throws Exception {
+        // Given
+        AtomicInteger verified = new AtomicInteger();
+        JwtDecoder cached = new CachingJwtDecoder(counting(verified), 10_000, Duration.ofMinutes(10));
+        String token = token("42", Instant.now().plusSeconds(3600));
+
+        // When
+        cached.decode(token);
+        cached.decode(token);
+
+        // Then
+        assertEquals(1, verified.get());
+        assertSame(cached.decode(token), cached.decode(token));
+    }
+
+    @Test
+    void testExpiredTokenIsVerifiedAgain() throws Exception {
+        // Given a token that expires within a second
+        AtomicInteger verified = new AtomicInteger();
+        JwtDecoder cached = new CachingJwtDecoder(counting(verified), 10_000, Duration.ofMinutes(10));
+        String token = token("42", Instant.now().plusSeconds(1));
+        cached.decode(token);
+
+        // When its exp has passed (the verifier still accepts it within its clock skew)
+        Thread.sleep(1_100);
+        cached.decode(token);
+
+        // Then the cache did not answer for it
+        assertEquals(2, verified.get());
+    }
+
+    @Test
+    void testTamperedTokenMissesTheCache() throws Exception {
+        // Given a verified token in the cache
+        AtomicInteger verified = new AtomicInteger();
+        JwtDecoder cached = new CachingJwtDecoder(counting(verified), 10_000, Duration.ofMinutes(10));
+        String token = token("42", Instant.now().plusSeconds(3600));
+        assertEquals("42", cached.decode(token).getSubject());
+
+        // When its signature is swapped for garbage, Then it is verified again and rejected
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA";
+        assertThrows(JwtException.class, () -> cached.decode(forged));
+        assertEquals(2, verified.get());
+
+        // And the failure is not cached either
+        assertThrows(JwtException.class, () -> cached.decode(forged));
+        assertEquals(3, verified.get());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testCachedDecodeIsCheaperThanVerifying(TestReporter reporter) throws Exception {
+        // Given
+        NimbusJwtDecoder verifier = verifier();
+        JwtDecoder cached = new CachingJwtDecoder(verifier, 10_000, Duration.ofMinutes(10));
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) tokens.add(token(String.valueOf(i), Instant.now().plusSeconds(3600)));
+
+        // When - warm up both, then time them
+        run(verifier, tokens);
+        run(cached, tokens);
+        double uncachedNs = run(verifier, tokens);
+        double cachedNs = run(cached, tokens);
+
+        // Then
+        reporter.publishEntry("decode", String.format("%d tokens x %d rounds: uncached %.0f ns/decode, cached %.0f ns/decode",
+                TOKENS, ROUNDS, uncachedNs, cachedNs));
+    }
+
+    private static double run(JwtDecoder decoder, List<String> tokens) {
+        long started = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String token : tokens) decoder.decode(token);
+        }
+        return (double) (System.nanoTime() - started) / (ROUNDS * tokens.size());
+    }
+
+    private static JwtDecoder counting(AtomicInteger calls) {
+        NimbusJwtDecoder verifier = verifier();
+        return token -> {
+            calls.incrementAndGet();
+            return verifier.decode(token);
+        };
+    }
+
+    private static NimbusJwtDecoder verifier() {
+        SecretKeySpec key = new SecretKeySpec(SECRET.getBytes(), "HmacSHA256");
+        return NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+    }
+
+    private static String token(String subject, Instant expiresAt) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+                .subject(subject)
+                .claim("scope", "USER")
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .build());
+        jwt.sign(new MACSigner(SECRET.getBytes()));
+        return jwt.serialize();
+    }
+}
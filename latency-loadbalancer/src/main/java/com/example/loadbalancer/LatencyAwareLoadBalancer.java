@@ -0,0 +1,149 @@
+package com.example.loadbalancer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Power-of-two-choices over peak-EWMA latency: each pick samples two instances and takes the one
+ * with the lower {@code latency * (in-flight + 1)}. Latency rises at once to any slower response
+ * and decays back over {@code decayNanos}, also while an instance gets no traffic, so a recovered
+ * instance is probed again. Failures count as a {@code failurePenaltyNanos} response. Timings come
+ * from the load balancer lifecycle, which both WebClient and the gateway invoke around each call.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final long decayNanos;
+    private final long failurePenaltyNanos;
+    private final LongSupplier clock;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers,
+                                    long decayNanos, long failurePenaltyNanos, LongSupplier clock) {
+        this.suppliers = suppliers;
+        this.decayNanos = decayNanos;
+        this.failurePenaltyNanos = failurePenaltyNanos;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) return new EmptyResponse();
+        if (stats.size() > instances.size()) forgetAllBut(instances);
+        if (instances.size() == 1) return new DefaultResponse(instances.get(0));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) second++;
+        long now = clock.getAsLong();
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(stats(a).cost(now) <= stats(b).cost(now) ? a : b);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext timed) timed.setRequestStartTime(clock.getAsLong());
+        if (lbResponse.hasServer()) stats(lbResponse.getServer()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completion) {
+        Response<ServiceInstance> lbResponse = completion.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) return;
+        Stats instance = stats(lbResponse.getServer());
+        // Clamped, since the stats may have been dropped and recreated while the call was running
+        instance.inFlight.updateAndGet(n -> Math.max(0, n - 1));
+        if (completion.status() == CompletionContext.Status.DISCARD) return;
+        long now = clock.getAsLong();
+        Object context = completion.getLoadBalancerRequest() != null ? completion.getLoadBalancerRequest().getContext() : null;
+        long started = context instanceof TimedRequestContext timed ? timed.getRequestStartTime() : now;
+        long latency = completion.status() == CompletionContext.Status.FAILED
+                ? Math.max(failurePenaltyNanos, now - started)
+                : now - started;
+        instance.observe(latency, now);
+    }
+
+    /** Records one finished call, as the lifecycle does; exposed for callers that time calls themselves. */
+    public void record(ServiceInstance instance, long latencyNanos, boolean failed) {
+        stats(instance).observe(failed ? Math.max(failurePenaltyNanos, latencyNanos) : latencyNanos, clock.getAsLong());
+    }
+
+    // A new instance starts at the current average, so it is neither flooded nor starved before its first response
+    private Stats stats(ServiceInstance instance) {
+        Stats known = stats.get(key(instance));
+        if (known != null) return known;
+        long now = clock.getAsLong();
+        double seed = stats.values().stream().mapToDouble(s -> s.decayed(now)).average().orElse(0);
+        return stats.computeIfAbsent(key(instance), k -> new Stats(seed));
+    }
+
+    private void forgetAllBut(List<ServiceInstance> instances) {
+        Set<String> live = new HashSet<>();
+        instances.forEach(instance -> live.add(key(instance)));
+        stats.keySet().retainAll(live);
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ':' + instance.getPort();
+    }
+
+    // Updates race benignly: a lost EWMA update only means one sample is skipped
+    private final class Stats {
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile double ewmaNanos;
+        volatile long updatedAt = clock.getAsLong();
+
+        Stats(double seedNanos) {
+            this.ewmaNanos = seedNanos;
+        }
+
+        double cost(long now) {
+            return decayed(now) * (inFlight.get() + 1);
+        }
+
+        void observe(long latencyNanos, long now) {
+            double w = decay(now);
+            // Starts from what the instance has decayed to, so a sample after an idle spell is not held above its peers
+            double current = decayed(now);
+            // Peak-sensitive: a slower response is taken as is, faster ones are blended in
+            ewmaNanos = latencyNanos > current ? latencyNanos : current * w + latencyNanos * (1 - w);
+            updatedAt = now;
+        }
+
+        double decayed(long now) {
+            return ewmaNanos * decay(now);
+        }
+
+        private double decay(long now) {
+            return Math.exp(-(double) Math.max(0, now - updatedAt) / decayNanos);
+        }
+    }
+}
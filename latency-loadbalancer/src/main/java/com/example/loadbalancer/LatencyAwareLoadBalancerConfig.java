@@ -0,0 +1,29 @@
+package com.example.loadbalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client configuration for {@code @LoadBalancerClient}: a subclass names the property prefix its
+ * {@code decay-ms} and {@code failure-penalty-ms} are read from. Deliberately not a
+ * {@code @Configuration}, so the subclass must not be one either: it may only be picked up by the
+ * client context it is registered for, not by component scanning.
+ */
+public abstract class LatencyAwareLoadBalancerConfig {
+    private final String prefix;
+
+    protected LatencyAwareLoadBalancerConfig(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Bean
+    LatencyAwareLoadBalancer latencyAwareLoadBalancer(Environment environment, LoadBalancerClientFactory factory) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        long decayMs = environment.getProperty(prefix + ".decay-ms", Long.class, 10_000L);
+        long failurePenaltyMs = environment.getProperty(prefix + ".failure-penalty-ms", Long.class, 2_000L);
+        return new LatencyAwareLoadBalancer(factory.getLazyProvider(name, ServiceInstanceListSupplier.class),
+                TimeUnit.MILLISECONDS.toNanos(decayMs), TimeUnit.MILLISECONDS.toNanos(failurePenaltyMs), System::nanoTime);
+    }
+}
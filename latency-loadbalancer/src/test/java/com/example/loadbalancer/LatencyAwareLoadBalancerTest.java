@@ -0,0 +1,131 @@
+package com.example.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClientsProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClientSpecification;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the balancer against in-process stub instances on a fake clock: each pick is answered
+ * with the stub's latency, as the WebClient lifecycle would report it.
+ */
+class LatencyAwareLoadBalancerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance fast1 = instance("hotel-1");
+    private final ServiceInstance fast2 = instance("hotel-2");
+    private final ServiceInstance slow = instance("hotel-3");
+    private final AtomicLong clock = new AtomicLong();
+    private final LatencyAwareLoadBalancer balancer = new LatencyAwareLoadBalancer(
+            suppliers(fast1, fast2, slow), 10_000 * MS, 2_000 * MS, clock::get);
+
+    @Test
+    void testTrafficShiftsAwayFromSlowInstance() {
+        // Given hotel-3 answers in 200 ms and the others in 5 ms, When 1000 sequential calls run
+        Map<String, Integer> picks = run(1000, Map.of("hotel-1", 5L, "hotel-2", 5L, "hotel-3", 200L));
+
+        // Then hotel-3 only gets the calls that taught the balancer it is slow
+        assertTrue(picks.getOrDefault("hotel-3", 0) < 50, picks.toString());
+        assertTrue(picks.get("hotel-1") > 300 && picks.get("hotel-2") > 300, picks.toString());
+    }
+
+    @Test
+    void testInFlightCallsCountAgainstAnInstance() {
+        // Given equal latency, but hotel-1 is busy with 10 calls
+        run(30, Map.of("hotel-1", 5L, "hotel-2", 5L, "hotel-3", 5L));
+        for (int i = 0; i < 10; i++) balancer.onStartRequest(new DefaultRequest<>(), new DefaultResponse(fast1));
+
+        // When
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 300; i++) picks.merge(pick().getInstanceId(), 1, Integer::sum);
+
+        // Then
+        assertEquals(0, picks.getOrDefault("hotel-1", 0), picks.toString());
+    }
+
+    @Test
+    void testRecoveredInstanceIsProbedAgain() {
+        // Given hotel-3 was slow and lost its traffic
+        run(300, Map.of("hotel-1", 5L, "hotel-2", 5L, "hotel-3", 500L));
+
+        // When it gets no traffic for a minute and has recovered
+        clock.addAndGet(60_000 * MS);
+        Map<String, Integer> picks = run(300, Map.of("hotel-1", 5L, "hotel-2", 5L, "hotel-3", 5L));
+
+        // Then it is picked again
+        assertTrue(picks.getOrDefault("hotel-3", 0) > 30, picks.toString());
+    }
+
+    @Test
+    void testClientConfigReadsItsPropertyPrefix() {
+        // Given a client context for hotel-service whose configuration reads "test.lb"
+        LoadBalancerClientFactory factory = new LoadBalancerClientFactory(new LoadBalancerClientsProperties());
+        factory.setConfigurations(List.of(new LoadBalancerClientSpecification(
+                "hotel-service", new Class<?>[] {TestLoadBalancerConfig.class})));
+        try (AnnotationConfigApplicationContext parent = new AnnotationConfigApplicationContext()) {
+            TestPropertyValues.of("test.lb.decay-ms=500", "other.lb.failure-penalty-ms=50").applyTo(parent);
+            parent.registerBean(LoadBalancerClientFactory.class, () -> factory);
+            parent.refresh();
+            factory.setApplicationContext(parent);
+
+            // When
+            LatencyAwareLoadBalancer configured = factory.getInstance("hotel-service", LatencyAwareLoadBalancer.class);
+
+            // Then its own prefix applies and anything else falls back to the defaults
+            assertEquals(500 * MS, ReflectionTestUtils.getField(configured, "decayNanos"));
+            assertEquals(2_000 * MS, ReflectionTestUtils.getField(configured, "failurePenaltyNanos"));
+            factory.destroy();
+        }
+    }
+
+    private Map<String, Integer> run(int calls, Map<String, Long> latencyMs) {
+        Map<String, Integer> picks = new HashMap<>();
+        for (int i = 0; i < calls; i++) {
+            ServiceInstance chosen = pick();
+            long latency = latencyMs.get(chosen.getInstanceId()) * MS;
+            clock.addAndGet(latency);
+            balancer.record(chosen, latency, false);
+            picks.merge(chosen.getInstanceId(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private ServiceInstance pick() {
+        return balancer.choose(new DefaultRequest<>()).block().getServer();
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "hotel-service", id, 8081, false);
+    }
+
+    static class TestLoadBalancerConfig extends LatencyAwareLoadBalancerConfig {
+        TestLoadBalancerConfig() {
+            super("test.lb");
+        }
+    }
+
+    private static ObjectProvider<ServiceInstanceListSupplier> suppliers(ServiceInstance... instances) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("supplier", ServiceInstanceListSuppliers.from("hotel-service", instances));
+        return beans.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+}